@@ -0,0 +1,52 @@
+package com.animalspotting;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.internet.MimeMessage;
+
+/**
+ * The application started once per benchmark JVM, with the "benchmark" profile.
+ * <p>
+ * It runs on an in-memory H2 database, and e-mails are built as usual but never sent.
+ * </p>
+ */
+public final class BenchmarkApplication {
+
+    private static ConfigurableApplicationContext context;
+
+    private BenchmarkApplication() {
+    }
+
+    public static synchronized ConfigurableApplicationContext start() {
+        if (context == null) {
+            context = new SpringApplicationBuilder(AnimalSpottingApp.class, DiscardingMailConfiguration.class)
+                .profiles("benchmark")
+                .run();
+        }
+        return context;
+    }
+
+    public static <T> T getBean(Class<T> type) {
+        return start().getBean(type);
+    }
+
+    @Configuration
+    static class DiscardingMailConfiguration {
+
+        @Bean
+        @Primary
+        public JavaMailSenderImpl discardingMailSender() {
+            return new JavaMailSenderImpl() {
+                @Override
+                protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+                    // the benchmarks measure the application, not the mail server
+                }
+            };
+        }
+    }
+}
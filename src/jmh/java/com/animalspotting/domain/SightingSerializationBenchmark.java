@@ -0,0 +1,77 @@
+package com.animalspotting.domain;
+
+import com.animalspotting.service.dto.SightingDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the JSON serialization of a page of sightings.
+ * <p>
+ * {@link #serializePage()} serializes the DTOs returned by the list endpoints, GET /api/sightings and its keyset,
+ * bounding box and radius variants. {@link #serializeEntities()} serializes the same sightings as entities, with
+ * their user and animal, as these endpoints used to return them.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SightingSerializationBenchmark {
+
+    @Param({"20", "100", "1000"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+
+    private List<SightingDTO> sightings;
+
+    private List<Sighting> entities;
+
+    @Setup
+    public void setup() {
+        // same modules and settings as the ObjectMapper configured by Spring Boot
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+            .findModulesViaServiceLoader(true)
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+        User user = new User();
+        user.setId(1L);
+        user.setLogin("user");
+        user.setEmail("user@localhost");
+        user.setActivated(true);
+        Animal animal = new Animal();
+        animal.setId(1L);
+        animal.setName("Lynx");
+        sightings = new ArrayList<>(pageSize);
+        entities = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Sighting sighting = new Sighting()
+                .date(LocalDate.of(2016, 1, 1).plusDays(i))
+                .latitude(59.33f + i * 0.001f)
+                .longitude(18.06f + i * 0.001f)
+                .count(i % 5 + 1)
+                .user(user)
+                .animal(animal);
+            sighting.setId((long) i);
+            entities.add(sighting);
+            sightings.add(new SightingDTO(sighting.getId(), sighting.getDate(), sighting.getLongitude(),
+                sighting.getLatitude(), sighting.getCount(), animal.getId(), animal.getName(), user.getLogin()));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(sightings);
+    }
+
+    @Benchmark
+    public byte[] serializeEntities() throws Exception {
+        return objectMapper.writeValueAsBytes(entities);
+    }
+}
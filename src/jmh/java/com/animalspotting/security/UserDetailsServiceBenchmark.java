@@ -0,0 +1,30 @@
+package com.animalspotting.security;
+
+import com.animalspotting.BenchmarkApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the user lookup done on every password authentication.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserDetailsServiceBenchmark {
+
+    private org.springframework.security.core.userdetails.UserDetailsService userDetailsService;
+
+    @Setup
+    public void setup() {
+        // the bean is a transactional proxy of the interface
+        userDetailsService = BenchmarkApplication.getBean(
+            org.springframework.security.core.userdetails.UserDetailsService.class);
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return userDetailsService.loadUserByUsername("admin");
+    }
+}
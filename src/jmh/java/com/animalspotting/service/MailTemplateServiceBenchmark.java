@@ -0,0 +1,77 @@
+package com.animalspotting.service;
+
+import com.animalspotting.BenchmarkApplication;
+import com.animalspotting.domain.Animal;
+import com.animalspotting.domain.Sighting;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the rendering of a sighting alert, per message, for a batch of recipients.
+ * <p>
+ * The recipients are split between English and Swedish. {@code renderPerRecipient} renders the template for
+ * each recipient, {@code renderPerLocale} renders it once per language of the recipients, as the
+ * SightingNotificationService does.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(MailTemplateServiceBenchmark.RECIPIENTS)
+public class MailTemplateServiceBenchmark {
+
+    static final int RECIPIENTS = 100;
+
+    @Param({"1", "10"})
+    private int sightings;
+
+    private MailTemplateService mailTemplateService;
+
+    private List<Locale> locales;
+
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setup() {
+        mailTemplateService = BenchmarkApplication.getBean(MailTemplateService.class);
+        locales = new ArrayList<>(RECIPIENTS);
+        for (int i = 0; i < RECIPIENTS; i++) {
+            locales.add(Locale.forLanguageTag(i % 2 == 0 ? "en" : "sv"));
+        }
+        Animal animal = new Animal().name("benchmark");
+        animal.setId(1L);
+        List<Sighting> alerted = new ArrayList<>(sightings);
+        for (int i = 0; i < sightings; i++) {
+            alerted.add(new Sighting().date(LocalDate.now()).latitude(59.33f).longitude(18.06f).count(i + 1));
+        }
+        variables = new HashMap<>();
+        variables.put("animal", animal);
+        variables.put("sightings", alerted);
+        variables.put("baseUrl", "http://127.0.0.1:8080");
+    }
+
+    @Benchmark
+    public void renderPerRecipient(Blackhole blackhole) {
+        for (Locale locale : locales) {
+            blackhole.consume(mailTemplateService.getSubject("email.sighting.title", locale));
+            blackhole.consume(mailTemplateService.render("sightingEmail", locale, variables));
+        }
+    }
+
+    @Benchmark
+    public void renderPerLocale(Blackhole blackhole) {
+        Map<Locale, String> contents = mailTemplateService.render("sightingEmail", locales, variables);
+        for (Locale locale : locales) {
+            blackhole.consume(mailTemplateService.getSubject("email.sighting.title", locale));
+            blackhole.consume(contents.get(locale));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.animalspotting.service;
+
+import com.animalspotting.BenchmarkApplication;
+import com.animalspotting.domain.Animal;
+import com.animalspotting.domain.Sighting;
+import com.animalspotting.domain.Subscription;
+import com.animalspotting.domain.User;
+import com.animalspotting.repository.AnimalRepository;
+import com.animalspotting.repository.NotificationOutboxRepository;
+import com.animalspotting.repository.SightingNotificationRepository;
+import com.animalspotting.repository.SubscriptionRepository;
+import com.animalspotting.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the creation of a sighting of an animal with a number of subscribers.
+ * <p>
+ * The sighting transaction only queues the id of the sighting in the sighting_notification table, whatever the
+ * number of subscribers: {@link #save()} measures it. {@link #saveAndExpand()} also expands the queued row into
+ * one notification outbox row per subscriber, as the dispatcher does, without sending them. Both tables are
+ * emptied after each iteration so that their size does not grow from one iteration to the next.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SightingServiceBenchmark {
+
+    @Param({"0", "100", "1000"})
+    private int subscribers;
+
+    private SightingService sightingService;
+
+    private SightingNotificationService sightingNotificationService;
+
+    private SightingNotificationRepository sightingNotificationRepository;
+
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    private User user;
+
+    private Animal animal;
+
+    @Setup
+    public void setup() {
+        sightingService = BenchmarkApplication.getBean(SightingService.class);
+        sightingNotificationService = BenchmarkApplication.getBean(SightingNotificationService.class);
+        sightingNotificationRepository = BenchmarkApplication.getBean(SightingNotificationRepository.class);
+        notificationOutboxRepository = BenchmarkApplication.getBean(NotificationOutboxRepository.class);
+        UserRepository userRepository = BenchmarkApplication.getBean(UserRepository.class);
+        SubscriptionRepository subscriptionRepository = BenchmarkApplication.getBean(SubscriptionRepository.class);
+        SubscriptionIndex subscriptionIndex = BenchmarkApplication.getBean(SubscriptionIndex.class);
+
+        user = userRepository.findOneByLogin("user").get();
+        animal = BenchmarkApplication.getBean(AnimalRepository.class)
+            .save(new Animal().name("benchmark-" + subscribers));
+        List<User> users = new ArrayList<>(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            User subscriber = new User();
+            subscriber.setLogin("subscriber-" + subscribers + "-" + i);
+            subscriber.setPassword(user.getPassword());
+            subscriber.setEmail(subscriber.getLogin() + "@localhost");
+            subscriber.setActivated(true);
+            subscriber.setLangKey("en");
+            users.add(subscriber);
+        }
+        List<Subscription> subscriptions = new ArrayList<>(subscribers);
+        for (User subscriber : userRepository.save(users)) {
+            subscriptions.add(new Subscription().user(subscriber).animal(animal));
+        }
+        subscriptionRepository.save(subscriptions);
+        subscriptionIndex.reload();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearNotifications() {
+        sightingNotificationRepository.deleteAllInBatch();
+        notificationOutboxRepository.deleteAllInBatch();
+    }
+
+    @Benchmark
+    public Sighting save() {
+        return sightingService.save(newSighting());
+    }
+
+    @Benchmark
+    public int saveAndExpand() {
+        sightingService.save(newSighting());
+        return sightingNotificationService.expandPending();
+    }
+
+    private Sighting newSighting() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new Sighting()
+            .date(LocalDate.now())
+            .latitude((float) random.nextDouble(-90, 90))
+            .longitude((float) random.nextDouble(-180, 180))
+            .count(1)
+            .user(user)
+            .animal(animal);
+    }
+}
@@ -0,0 +1,39 @@
+package com.animalspotting.web.rest.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the pagination headers added to every page returned by the REST API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaginationUtilBenchmark {
+
+    private Page<Object> firstPage;
+
+    private Page<Object> middlePage;
+
+    @Setup
+    public void setup() {
+        firstPage = new PageImpl<>(Collections.emptyList(), new PageRequest(0, 20), 100000);
+        middlePage = new PageImpl<>(Collections.emptyList(), new PageRequest(2500, 20), 100000);
+    }
+
+    @Benchmark
+    public HttpHeaders firstPage() throws Exception {
+        return PaginationUtil.generatePaginationHttpHeaders(firstPage, "/api/sightings");
+    }
+
+    @Benchmark
+    public HttpHeaders middlePage() throws Exception {
+        return PaginationUtil.generatePaginationHttpHeaders(middlePage, "/api/sightings");
+    }
+}
@@ -0,0 +1,25 @@
+package com.animalspotting.aop.async;
+
+import com.animalspotting.async.ExceptionHandlingAsyncTaskExecutor;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+
+/**
+ * Aspect naming the async tasks after the {@code @Async} method they run, for the metrics of the
+ * {@link ExceptionHandlingAsyncTaskExecutor}.
+ * <p>
+ * The {@code @Async} interceptor submits the task before any aspect runs, so the task is named on the executor
+ * thread, when the method starts.
+ * </p>
+ */
+@Aspect
+public class AsyncTaskAspect {
+
+    @Before("@annotation(org.springframework.scheduling.annotation.Async) && within(com.animalspotting..*)")
+    public void nameTask(JoinPoint joinPoint) {
+        ExceptionHandlingAsyncTaskExecutor.setCurrentTaskType(
+            joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName());
+    }
+}
@@ -1,37 +1,64 @@
 package com.animalspotting.aop.logging;
 
 import com.animalspotting.config.Constants;
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.config.JHipsterProperties.Logging.Tracing.Mode;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 
 import javax.inject.Inject;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Aspect for logging execution of service and repository Spring components.
+ * <p>
+ * The duration of every call is recorded in a timer per method, and what is logged depends on the tracing mode:
+ * every call at debug level, one call in a given number, or the slow calls only. The arguments are only logged
+ * in full mode, which is meant for development: the sampled and slow modes run in production, where the arguments
+ * may be passwords or keys, so they only log the method and its duration.
+ * </p>
  */
 @Aspect
 public class LoggingAspect {
 
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
+    private final ConcurrentMap<Object, Timer> timers = new ConcurrentHashMap<>();
+
     @Inject
     private Environment env;
 
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
     @Pointcut("within(com.animalspotting.repository..*) || within(com.animalspotting.service..*) || within(com.animalspotting.web.rest..*)")
     public void loggingPointcut() {
     }
 
     @AfterThrowing(pointcut = "loggingPointcut()", throwing = "e")
     public void logAfterThrowing(JoinPoint joinPoint, Throwable e) {
+        if (jHipsterProperties.getLogging().getTracing().getMode() != Mode.FULL) {
+            return;
+        }
         if (env.acceptsProfiles(Constants.SPRING_PROFILE_DEVELOPMENT)) {
             log.error("Exception in {}.{}() with cause = \'{}\' and exception = \'{}\'", joinPoint.getSignature().getDeclaringTypeName(),
                 joinPoint.getSignature().getName(), e.getCause() != null? e.getCause() : "NULL", e.getMessage(), e);
@@ -44,22 +71,54 @@ public class LoggingAspect {
 
     @Around("loggingPointcut()")
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
-        if (log.isDebugEnabled()) {
+        JHipsterProperties.Logging.Tracing tracing = jHipsterProperties.getLogging().getTracing();
+        boolean full = tracing.getMode() == Mode.FULL && log.isDebugEnabled();
+        if (full) {
             log.debug("Enter: {}.{}() with argument[s] = {}", joinPoint.getSignature().getDeclaringTypeName(),
                 joinPoint.getSignature().getName(), Arrays.toString(joinPoint.getArgs()));
         }
+        long start = System.nanoTime();
         try {
             Object result = joinPoint.proceed();
-            if (log.isDebugEnabled()) {
+            if (full) {
                 log.debug("Exit: {}.{}() with result = {}", joinPoint.getSignature().getDeclaringTypeName(),
                     joinPoint.getSignature().getName(), result);
             }
             return result;
         } catch (IllegalArgumentException e) {
-            log.error("Illegal argument: {} in {}.{}()", Arrays.toString(joinPoint.getArgs()),
-                    joinPoint.getSignature().getDeclaringTypeName(), joinPoint.getSignature().getName());
+            if (full) {
+                log.error("Illegal argument: {} in {}.{}()", Arrays.toString(joinPoint.getArgs()),
+                        joinPoint.getSignature().getDeclaringTypeName(), joinPoint.getSignature().getName());
+            } else {
+                log.error("Illegal argument in {}.{}()", joinPoint.getSignature().getDeclaringTypeName(),
+                        joinPoint.getSignature().getName());
+            }
 
             throw e;
+        } finally {
+            long duration = System.nanoTime() - start;
+            getTimer(joinPoint).update(duration, TimeUnit.NANOSECONDS);
+            if (tracing.getMode() == Mode.SAMPLED && isSampled(tracing.getSampleRate())) {
+                log.info("Sampled call: {}.{}() took {} ms", joinPoint.getSignature().getDeclaringTypeName(),
+                    joinPoint.getSignature().getName(), TimeUnit.NANOSECONDS.toMillis(duration));
+            } else if (tracing.getMode() == Mode.SLOW && duration >= TimeUnit.MILLISECONDS.toNanos(tracing.getSlowThresholdMs())) {
+                log.warn("Slow call: {}.{}() took {} ms", joinPoint.getSignature().getDeclaringTypeName(),
+                    joinPoint.getSignature().getName(), TimeUnit.NANOSECONDS.toMillis(duration));
+            }
         }
     }
+
+    /**
+     * Whether to log a call, one call in sampleRate: every call with a rate of 1 or less.
+     */
+    private boolean isSampled(int sampleRate) {
+        return sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    private Timer getTimer(ProceedingJoinPoint joinPoint) {
+        Signature signature = joinPoint.getSignature();
+        Object key = signature instanceof MethodSignature ? ((MethodSignature) signature).getMethod() : signature.toLongString();
+        return timers.computeIfAbsent(key, method ->
+            metricRegistry.timer(MetricRegistry.name("tracing", signature.getDeclaringTypeName(), signature.getName())));
+    }
 }
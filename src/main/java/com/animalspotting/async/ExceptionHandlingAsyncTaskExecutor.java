@@ -2,51 +2,144 @@ package com.animalspotting.async;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.animalspotting.domain.util.JdbcStatistics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+/**
+ * Executor logging the exceptions thrown by the async tasks, and timing them.
+ * <p>
+ * The time a task waits before it starts, and the time it runs, are recorded for all the tasks and per task
+ * type. The type of a task is the {@code @Async} method it runs, as named by the {@code AsyncTaskAspect}, so the
+ * delay of the e-mails can be told apart from the time they take to send. The number of SQL statements each task
+ * runs is recorded per task type as well.
+ * </p>
+ */
 public class ExceptionHandlingAsyncTaskExecutor implements AsyncTaskExecutor,
     InitializingBean, DisposableBean {
 
+    private static final String METRIC_PREFIX = "async.executor";
+
+    private static final String OTHER_TASK_TYPE = "other";
+
+    private static final ThreadLocal<RunningTask> RUNNING_TASK = new ThreadLocal<>();
+
     private final Logger log = LoggerFactory.getLogger(ExceptionHandlingAsyncTaskExecutor.class);
 
     private final AsyncTaskExecutor executor;
 
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private MetricRegistry metricRegistry;
+
+    private Meter rejected = new Meter();
+
+    private Timer queueWait = new Timer();
+
+    private Timer run = new Timer();
+
     public ExceptionHandlingAsyncTaskExecutor(AsyncTaskExecutor executor) {
         this.executor = executor;
     }
 
+    /**
+     * Name the type of the task running on the current thread, for its metrics.
+     * <p>
+     * Only the first name given to a task is kept, and nothing is done outside of a task of this executor.
+     * </p>
+     *
+     * @param type the type of the task
+     */
+    public static void setCurrentTaskType(String type) {
+        RunningTask task = RUNNING_TASK.get();
+        if (task != null && task.type == null) {
+            task.type = type;
+        }
+    }
+
+    /**
+     * Register the metrics of the executor: the tasks queued and running, the threads of the pool, the rejected
+     * tasks, and the time the tasks wait and run, in total and per task type.
+     *
+     * @param metricRegistry the registry to register the metrics with
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "queued"), (Gauge<Integer>) queued::get);
+        metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "active"), (Gauge<Integer>) active::get);
+        if (executor instanceof ThreadPoolTaskExecutor) {
+            ThreadPoolTaskExecutor pool = (ThreadPoolTaskExecutor) executor;
+            metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "threads"), (Gauge<Integer>) pool::getPoolSize);
+        }
+        rejected = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "rejected"));
+        queueWait = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "queue-wait"));
+        run = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "run"));
+    }
+
     @Override
     public void execute(Runnable task) {
-        executor.execute(createWrappedRunnable(task));
+        Runnable wrapped = createWrappedRunnable(task);
+        submitted();
+        try {
+            executor.execute(wrapped);
+        } catch (TaskRejectedException e) {
+            rejected();
+            throw e;
+        }
     }
 
     @Override
     public void execute(Runnable task, long startTimeout) {
-        executor.execute(createWrappedRunnable(task), startTimeout);
+        Runnable wrapped = createWrappedRunnable(task);
+        submitted();
+        try {
+            executor.execute(wrapped, startTimeout);
+        } catch (TaskRejectedException e) {
+            rejected();
+            throw e;
+        }
     }
 
     private <T> Callable<T> createCallable(final Callable<T> task) {
+        long submitted = System.nanoTime();
         return () -> {
+            RunningTask running = started(submitted);
             try {
                 return task.call();
             } catch (Exception e) {
                 handle(e);
                 throw e;
+            } finally {
+                completed(running);
             }
         };
     }
 
     private Runnable createWrappedRunnable(final Runnable task) {
+        long submitted = System.nanoTime();
         return () -> {
+            RunningTask running = started(submitted);
             try {
                 task.run();
             } catch (Exception e) {
                 handle(e);
+            } finally {
+                completed(running);
             }
         };
     }
@@ -57,12 +150,62 @@ public class ExceptionHandlingAsyncTaskExecutor implements AsyncTaskExecutor,
 
     @Override
     public Future<?> submit(Runnable task) {
-        return executor.submit(createWrappedRunnable(task));
+        Runnable wrapped = createWrappedRunnable(task);
+        submitted();
+        try {
+            return executor.submit(wrapped);
+        } catch (TaskRejectedException e) {
+            rejected();
+            throw e;
+        }
     }
 
     @Override
     public <T> Future<T> submit(Callable<T> task) {
-        return executor.submit(createCallable(task));
+        Callable<T> wrapped = createCallable(task);
+        submitted();
+        try {
+            return executor.submit(wrapped);
+        } catch (TaskRejectedException e) {
+            rejected();
+            throw e;
+        }
+    }
+
+    private void submitted() {
+        queued.incrementAndGet();
+    }
+
+    private void rejected() {
+        queued.decrementAndGet();
+        rejected.mark();
+    }
+
+    private RunningTask started(long submitted) {
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        RunningTask running = new RunningTask(submitted, System.nanoTime());
+        RUNNING_TASK.set(running);
+        JdbcStatistics.current().reset();
+        return running;
+    }
+
+    private void completed(RunningTask running) {
+        long runTime = System.nanoTime() - running.started;
+        long queueWaitTime = running.started - running.submitted;
+        RUNNING_TASK.remove();
+        active.decrementAndGet();
+        queueWait.update(queueWaitTime, TimeUnit.NANOSECONDS);
+        run.update(runTime, TimeUnit.NANOSECONDS);
+        if (metricRegistry != null) {
+            String type = running.type != null ? running.type : OTHER_TASK_TYPE;
+            metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "tasks", type, "queue-wait"))
+                .update(queueWaitTime, TimeUnit.NANOSECONDS);
+            metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "tasks", type, "run"))
+                .update(runTime, TimeUnit.NANOSECONDS);
+            metricRegistry.histogram(MetricRegistry.name(METRIC_PREFIX, "tasks", type, "statements"))
+                .update(JdbcStatistics.current().getStatements());
+        }
     }
 
     @Override
@@ -80,4 +223,18 @@ public class ExceptionHandlingAsyncTaskExecutor implements AsyncTaskExecutor,
             bean.afterPropertiesSet();
         }
     }
+
+    private static final class RunningTask {
+
+        private final long submitted;
+
+        private final long started;
+
+        private String type;
+
+        private RunningTask(long submitted, long started) {
+            this.submitted = submitted;
+            this.started = started;
+        }
+    }
 }
@@ -0,0 +1,132 @@
+package com.animalspotting.async;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executor running each task on a new thread, with at most a given number of tasks running at a time.
+ * <p>
+ * The tasks beyond the concurrency limit wait in a bounded queue, and are started as soon as a running task
+ * completes: unlike a {@link java.util.concurrent.ThreadPoolExecutor} with a core size smaller than its maximum
+ * size, all the permits are used before tasks start waiting, which suits tasks blocked on I/O most of the time,
+ * like sending e-mails. Tasks are rejected when the queue is full, or once the executor is destroyed.
+ * </p>
+ */
+public class ThreadPerTaskAsyncTaskExecutor implements AsyncTaskExecutor, DisposableBean {
+
+    private final Logger log = LoggerFactory.getLogger(ThreadPerTaskAsyncTaskExecutor.class);
+
+    private final Semaphore permits;
+
+    private final int concurrencyLimit;
+
+    private final BlockingQueue<Runnable> queue;
+
+    private final ThreadFactory threadFactory;
+
+    private volatile boolean shutdown;
+
+    public ThreadPerTaskAsyncTaskExecutor(int concurrencyLimit, int queueCapacity, String threadNamePrefix) {
+        this.permits = new Semaphore(concurrencyLimit);
+        this.concurrencyLimit = concurrencyLimit;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+    }
+
+    /**
+     * @return the number of tasks running
+     */
+    public int getActiveCount() {
+        return concurrencyLimit - permits.availablePermits();
+    }
+
+    /**
+     * @return the number of tasks waiting for a running task to complete
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown || !queue.offer(task)) {
+            throw new TaskRejectedException("Executor did not accept task: " + task);
+        }
+        startTasks();
+    }
+
+    @Override
+    public void execute(Runnable task, long startTimeout) {
+        execute(task);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public void destroy() {
+        shutdown = true;
+        int dropped = queue.size();
+        queue.clear();
+        if (dropped > 0) {
+            log.warn("Dropped {} task(s) not started before shutdown", dropped);
+        }
+    }
+
+    /**
+     * Start a thread for each queued task, while permits are available.
+     * <p>
+     * A task queued while no permit is available is started by the next task completing, which releases its
+     * permit before checking the queue.
+     * </p>
+     */
+    private void startTasks() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            Runnable task = queue.poll();
+            if (task == null) {
+                permits.release();
+                continue;
+            }
+            try {
+                threadFactory.newThread(() -> run(task)).start();
+            } catch (RuntimeException | Error e) {
+                permits.release();
+                throw new TaskRejectedException("Could not start a thread for task: " + task, e);
+            }
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } finally {
+            permits.release();
+            if (!shutdown) {
+                startTasks();
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.animalspotting.config;
 
+import com.animalspotting.aop.async.AsyncTaskAspect;
 import com.animalspotting.async.ExceptionHandlingAsyncTaskExecutor;
+import com.animalspotting.async.ThreadPerTaskAsyncTaskExecutor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +22,8 @@ import javax.inject.Inject;
 @EnableScheduling
 public class AsyncConfiguration implements AsyncConfigurer {
 
+    private static final String THREAD_NAME_PREFIX = "animal-spotting-Executor-";
+
     private final Logger log = LoggerFactory.getLogger(AsyncConfiguration.class);
 
     @Inject
@@ -28,15 +32,25 @@ public class AsyncConfiguration implements AsyncConfigurer {
     @Override
     @Bean(name = "taskExecutor")
     public Executor getAsyncExecutor() {
-        log.debug("Creating Async Task Executor");
+        JHipsterProperties.Async async = jHipsterProperties.getAsync();
+        log.debug("Creating Async Task Executor in {} mode", async.getMode());
+        if (async.getMode() == JHipsterProperties.Async.Mode.PER_TASK) {
+            return new ExceptionHandlingAsyncTaskExecutor(new ThreadPerTaskAsyncTaskExecutor(
+                async.getConcurrencyLimit(), async.getQueueCapacity(), THREAD_NAME_PREFIX));
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(jHipsterProperties.getAsync().getCorePoolSize());
-        executor.setMaxPoolSize(jHipsterProperties.getAsync().getMaxPoolSize());
-        executor.setQueueCapacity(jHipsterProperties.getAsync().getQueueCapacity());
-        executor.setThreadNamePrefix("animal-spotting-Executor-");
+        executor.setCorePoolSize(async.getCorePoolSize());
+        executor.setMaxPoolSize(async.getMaxPoolSize());
+        executor.setQueueCapacity(async.getQueueCapacity());
+        executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    @Bean
+    public AsyncTaskAspect asyncTaskAspect() {
+        return new AsyncTaskAspect();
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
@@ -1,16 +1,41 @@
 package com.animalspotting.config;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Status;
+import net.sf.ehcache.event.CacheManagerEventListener;
+import net.sf.ehcache.statistics.StatisticsGateway;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.ehcache.EhCacheCacheManager;
 import org.springframework.context.annotation.*;
-import org.springframework.cache.support.NoOpCacheManager; 
 
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import java.util.Set;
+import java.util.TreeSet;
 
+/**
+ * Configuration of the Ehcache cache manager, used both by Spring and as the Hibernate second level cache.
+ * <p>
+ * Hibernate and this configuration share the singleton Ehcache manager, whichever starts first. The regions
+ * declared in the "jhipster.cache.ehcache.regions" properties are created here if Hibernate has not created
+ * them yet, and every region gets its size and time to live from the properties, falling back to the global
+ * ones. The update timestamps region of the Hibernate query cache never expires, as a query result could
+ * otherwise outlive the knowledge that its tables have changed.
+ * </p>
+ * <p>
+ * The statistics of every region are exposed as metrics, including the regions created after startup. The
+ * Ehcache manager is shut down by Hibernate, which owns the singleton, and not here.
+ * </p>
+ */
 @SuppressWarnings("unused")
 @Configuration
 @EnableCaching
@@ -19,7 +44,13 @@ public class CacheConfiguration {
 
     private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
-    private CacheManager cacheManager;
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private net.sf.ehcache.CacheManager cacheManager;
 
     @PreDestroy
     public void destroy() {
@@ -28,9 +59,107 @@ public class CacheConfiguration {
 
     @Bean
     public CacheManager cacheManager() {
-        log.debug("No cache");
-        cacheManager = new NoOpCacheManager();
-        return cacheManager;
+        log.debug("Starting Ehcache");
+        cacheManager = net.sf.ehcache.CacheManager.create();
+        JHipsterProperties.Cache properties = jHipsterProperties.getCache();
+        Set<String> names = new TreeSet<>(properties.getEhcache().getRegions().keySet());
+        names.add(UpdateTimestampsCache.REGION_NAME);
+        for (String name : cacheManager.getCacheNames()) {
+            names.add(name);
+        }
+        for (String name : names) {
+            JHipsterProperties.Cache.Region region = properties.getEhcache().getRegions()
+                .getOrDefault(name, new JHipsterProperties.Cache.Region());
+            long maxEntries = region.getMaxEntries() != null ?
+                region.getMaxEntries() : properties.getEhcache().getMaxEntries();
+            int timeToLiveSeconds = region.getTimeToLiveSeconds() != null ?
+                region.getTimeToLiveSeconds() : properties.getTimeToLiveSeconds();
+            if (UpdateTimestampsCache.REGION_NAME.equals(name)) {
+                timeToLiveSeconds = 0;
+            }
+            if (!cacheManager.cacheExists(name)) {
+                cacheManager.addCache(new Cache(new net.sf.ehcache.config.CacheConfiguration(name, (int) maxEntries)));
+            }
+            net.sf.ehcache.config.CacheConfiguration configuration = cacheManager.getEhcache(name).getCacheConfiguration();
+            configuration.setMaxEntriesLocalHeap(maxEntries);
+            configuration.setTimeToLiveSeconds(timeToLiveSeconds);
+            log.debug("Configured cache region {} with {} entries and a time to live of {}s", name, maxEntries, timeToLiveSeconds);
+            registerMetrics(name);
+        }
+        cacheManager.getCacheManagerEventListenerRegistry().registerListener(new MetricsCacheManagerEventListener());
+        EhCacheCacheManager ehCacheManager = new EhCacheCacheManager();
+        ehCacheManager.setCacheManager(cacheManager);
+        return ehCacheManager;
+    }
+
+    /**
+     * Expose the statistics of a cache region in the metric registry.
+     * <p>
+     * The gauges look the cache up on each read, as Hibernate may hold its own reference to the cache.
+     * </p>
+     */
+    private void registerMetrics(String name) {
+        String prefix = MetricRegistry.name("cache", name);
+        if (metricRegistry.getNames().contains(MetricRegistry.name(prefix, "hits"))) {
+            return;
+        }
+        metricRegistry.register(MetricRegistry.name(prefix, "hits"),
+            (Gauge<Long>) () -> statistics(name).cacheHitCount());
+        metricRegistry.register(MetricRegistry.name(prefix, "misses"),
+            (Gauge<Long>) () -> statistics(name).cacheMissCount());
+        metricRegistry.register(MetricRegistry.name(prefix, "evictions"),
+            (Gauge<Long>) () -> statistics(name).cacheEvictedCount());
+        metricRegistry.register(MetricRegistry.name(prefix, "expirations"),
+            (Gauge<Long>) () -> statistics(name).cacheExpiredCount());
+        metricRegistry.register(MetricRegistry.name(prefix, "size"),
+            (Gauge<Long>) () -> statistics(name).getLocalHeapSize());
+        metricRegistry.register(MetricRegistry.name(prefix, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                StatisticsGateway statistics = statistics(name);
+                return Ratio.of(statistics.cacheHitCount(), statistics.cacheHitCount() + statistics.cacheMissCount());
+            }
+        });
     }
 
+    private StatisticsGateway statistics(String name) {
+        Ehcache cache = cacheManager.getEhcache(name);
+        return cache.getStatistics();
+    }
+
+    /**
+     * Listener exposing the statistics of the regions added after startup, and removing those of the regions
+     * removed.
+     */
+    private class MetricsCacheManagerEventListener implements CacheManagerEventListener {
+
+        private Status status = Status.STATUS_UNINITIALISED;
+
+        @Override
+        public void init() {
+            status = Status.STATUS_ALIVE;
+        }
+
+        @Override
+        public Status getStatus() {
+            return status;
+        }
+
+        @Override
+        public void dispose() {
+            status = Status.STATUS_SHUTDOWN;
+        }
+
+        @Override
+        public void notifyCacheAdded(String cacheName) {
+            log.debug("Registering the metrics of the cache region {}", cacheName);
+            registerMetrics(cacheName);
+        }
+
+        @Override
+        public void notifyCacheRemoved(String cacheName) {
+            String prefix = MetricRegistry.name("cache", cacheName) + ".";
+            metricRegistry.removeMatching((name, metric) -> name.startsWith(prefix));
+        }
+    }
 }
@@ -3,6 +3,9 @@ package com.animalspotting.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.web.cors.CorsConfiguration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Properties specific to JHipster.
  *
@@ -21,6 +24,14 @@ public class JHipsterProperties {
 
     private final Mail mail = new Mail();
 
+    private final Notification notification = new Notification();
+
+    private final Stats stats = new Stats();
+
+    private final Audit audit = new Audit();
+
+    private final Users users = new Users();
+
     private final Security security = new Security();
 
     private final Swagger swagger = new Swagger();
@@ -47,6 +58,22 @@ public class JHipsterProperties {
         return mail;
     }
 
+    public Notification getNotification() {
+        return notification;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    public Audit getAudit() {
+        return audit;
+    }
+
+    public Users getUsers() {
+        return users;
+    }
+
     public Security getSecurity() {
         return security;
     }
@@ -69,12 +96,46 @@ public class JHipsterProperties {
 
     public static class Async {
 
+        /**
+         * How the async tasks are run.
+         */
+        public enum Mode {
+            /**
+             * On a pool of corePoolSize to maxPoolSize threads, extra threads being started once the queue is full.
+             */
+            POOL,
+            /**
+             * Each on a new thread, with at most concurrencyLimit tasks running at a time.
+             */
+            PER_TASK
+        }
+
+        private Mode mode = Mode.POOL;
+
+        private int concurrencyLimit = 50;
+
         private int corePoolSize = 2;
 
         private int maxPoolSize = 50;
 
         private int queueCapacity = 10000;
 
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public int getConcurrencyLimit() {
+            return concurrencyLimit;
+        }
+
+        public void setConcurrencyLimit(int concurrencyLimit) {
+            this.concurrencyLimit = concurrencyLimit;
+        }
+
         public int getCorePoolSize() {
             return corePoolSize;
         }
@@ -126,6 +187,8 @@ public class JHipsterProperties {
 
         private int timeToLiveSeconds = 3600;
 
+        private final Ehcache ehcache = new Ehcache();
+
         public int getTimeToLiveSeconds() {
             return timeToLiveSeconds;
         }
@@ -133,12 +196,65 @@ public class JHipsterProperties {
         public void setTimeToLiveSeconds(int timeToLiveSeconds) {
             this.timeToLiveSeconds = timeToLiveSeconds;
         }
+
+        public Ehcache getEhcache() {
+            return ehcache;
+        }
+
+        public static class Ehcache {
+
+            private long maxEntries = 1000;
+
+            private final Map<String, Region> regions = new HashMap<>();
+
+            public long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public Map<String, Region> getRegions() {
+                return regions;
+            }
+        }
+
+        /**
+         * Settings of a cache region, defaulting to the global ones when not set.
+         */
+        public static class Region {
+
+            private Integer timeToLiveSeconds;
+
+            private Long maxEntries;
+
+            public Integer getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Integer timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+        }
     }
 
     public static class Mail {
 
         private String from = "animalSpotting@localhost";
 
+        private String baseUrl = "http://127.0.0.1:8080";
+
+        private final Pool pool = new Pool();
+
         public String getFrom() {
             return from;
         }
@@ -146,15 +262,423 @@ public class JHipsterProperties {
         public void setFrom(String from) {
             this.from = from;
         }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public Pool getPool() {
+            return pool;
+        }
+
+        public static class Pool {
+
+            private int size = 4;
+
+            private int maxInFlight = 1000;
+
+            private int maxMessagesPerConnection = 100;
+
+            private long maxIdleMs = 30000;
+
+            private long acquireTimeoutMs = 60000;
+
+            public int getSize() {
+                return size;
+            }
+
+            public void setSize(int size) {
+                this.size = size;
+            }
+
+            public int getMaxInFlight() {
+                return maxInFlight;
+            }
+
+            public void setMaxInFlight(int maxInFlight) {
+                this.maxInFlight = maxInFlight;
+            }
+
+            public int getMaxMessagesPerConnection() {
+                return maxMessagesPerConnection;
+            }
+
+            public void setMaxMessagesPerConnection(int maxMessagesPerConnection) {
+                this.maxMessagesPerConnection = maxMessagesPerConnection;
+            }
+
+            public long getMaxIdleMs() {
+                return maxIdleMs;
+            }
+
+            public void setMaxIdleMs(long maxIdleMs) {
+                this.maxIdleMs = maxIdleMs;
+            }
+
+            public long getAcquireTimeoutMs() {
+                return acquireTimeoutMs;
+            }
+
+            public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+                this.acquireTimeoutMs = acquireTimeoutMs;
+            }
+        }
+    }
+
+    public static class Notification {
+
+        private int batchSize = 500;
+
+        private final Outbox outbox = new Outbox();
+
+        private final Digest digest = new Digest();
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Outbox getOutbox() {
+            return outbox;
+        }
+
+        public Digest getDigest() {
+            return digest;
+        }
+
+        public static class Digest {
+
+            private boolean enabled = false;
+
+            private int windowSeconds = 300;
+
+            private long tickMs = 1000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getWindowSeconds() {
+                return windowSeconds;
+            }
+
+            public void setWindowSeconds(int windowSeconds) {
+                this.windowSeconds = windowSeconds;
+            }
+
+            public long getTickMs() {
+                return tickMs;
+            }
+
+            public void setTickMs(long tickMs) {
+                this.tickMs = tickMs;
+            }
+        }
+
+        public static class Outbox {
+
+            private long dispatchDelayMs = 1000;
+
+            private int dispatchBatchSize = 100;
+
+            private int leaseSeconds = 300;
+
+            private int maxAttempts = 10;
+
+            private long initialBackoffMs = 30000;
+
+            private long maxBackoffMs = 3600000;
+
+            private int retentionDays = 7;
+
+            public long getDispatchDelayMs() {
+                return dispatchDelayMs;
+            }
+
+            public void setDispatchDelayMs(long dispatchDelayMs) {
+                this.dispatchDelayMs = dispatchDelayMs;
+            }
+
+            public int getDispatchBatchSize() {
+                return dispatchBatchSize;
+            }
+
+            public void setDispatchBatchSize(int dispatchBatchSize) {
+                this.dispatchBatchSize = dispatchBatchSize;
+            }
+
+            public int getLeaseSeconds() {
+                return leaseSeconds;
+            }
+
+            public void setLeaseSeconds(int leaseSeconds) {
+                this.leaseSeconds = leaseSeconds;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public long getInitialBackoffMs() {
+                return initialBackoffMs;
+            }
+
+            public void setInitialBackoffMs(long initialBackoffMs) {
+                this.initialBackoffMs = initialBackoffMs;
+            }
+
+            public long getMaxBackoffMs() {
+                return maxBackoffMs;
+            }
+
+            public void setMaxBackoffMs(long maxBackoffMs) {
+                this.maxBackoffMs = maxBackoffMs;
+            }
+
+            public int getRetentionDays() {
+                return retentionDays;
+            }
+
+            public void setRetentionDays(int retentionDays) {
+                this.retentionDays = retentionDays;
+            }
+        }
+    }
+
+    public static class Stats {
+
+        private int geohashPrecision = 5;
+
+        private long checkpointDelayMs = 10000;
+
+        private int rebuildParallelism = 4;
+
+        private int rebuildLockSeconds = 3600;
+
+        public int getGeohashPrecision() {
+            return geohashPrecision;
+        }
+
+        public void setGeohashPrecision(int geohashPrecision) {
+            this.geohashPrecision = geohashPrecision;
+        }
+
+        public long getCheckpointDelayMs() {
+            return checkpointDelayMs;
+        }
+
+        public void setCheckpointDelayMs(long checkpointDelayMs) {
+            this.checkpointDelayMs = checkpointDelayMs;
+        }
+
+        public int getRebuildParallelism() {
+            return rebuildParallelism;
+        }
+
+        public void setRebuildParallelism(int rebuildParallelism) {
+            this.rebuildParallelism = rebuildParallelism;
+        }
+
+        public int getRebuildLockSeconds() {
+            return rebuildLockSeconds;
+        }
+
+        public void setRebuildLockSeconds(int rebuildLockSeconds) {
+            this.rebuildLockSeconds = rebuildLockSeconds;
+        }
+    }
+
+    public static class Audit {
+
+        /**
+         * What is done with an audit event when the buffer of the writer is full.
+         */
+        public enum OverflowPolicy {
+            /**
+             * The event is dropped, and counted.
+             */
+            DROP,
+            /**
+             * The caller waits for room in the buffer, at most blockTimeoutMs, then the event is dropped.
+             */
+            BLOCK
+        }
+
+        private boolean async = true;
+
+        private int bufferSize = 10000;
+
+        private int batchSize = 100;
+
+        private long flushIntervalMs = 1000;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+        private long blockTimeoutMs = 100;
+
+        private int retentionDays = 365;
+
+        private int retentionLockSeconds = 3600;
+
+        public boolean isAsync() {
+            return async;
+        }
+
+        public void setAsync(boolean async) {
+            this.async = async;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public long getBlockTimeoutMs() {
+            return blockTimeoutMs;
+        }
+
+        public void setBlockTimeoutMs(long blockTimeoutMs) {
+            this.blockTimeoutMs = blockTimeoutMs;
+        }
+
+        public int getRetentionDays() {
+            return retentionDays;
+        }
+
+        public void setRetentionDays(int retentionDays) {
+            this.retentionDays = retentionDays;
+        }
+
+        public int getRetentionLockSeconds() {
+            return retentionLockSeconds;
+        }
+
+        public void setRetentionLockSeconds(int retentionLockSeconds) {
+            this.retentionLockSeconds = retentionLockSeconds;
+        }
+    }
+
+    public static class Users {
+
+        private final Cleanup cleanup = new Cleanup();
+
+        public Cleanup getCleanup() {
+            return cleanup;
+        }
+
+        public static class Cleanup {
+
+            private int chunkSize = 500;
+
+            private int lockSeconds = 3600;
+
+            public int getChunkSize() {
+                return chunkSize;
+            }
+
+            public void setChunkSize(int chunkSize) {
+                this.chunkSize = chunkSize;
+            }
+
+            public int getLockSeconds() {
+                return lockSeconds;
+            }
+
+            public void setLockSeconds(int lockSeconds) {
+                this.lockSeconds = lockSeconds;
+            }
+        }
     }
 
     public static class Security {
 
         private final Authentication authentication = new Authentication();
 
+        private final Password password = new Password();
+
         public Authentication getAuthentication() {
             return authentication;
         }
+
+        public Password getPassword() {
+            return password;
+        }
+
+        public static class Password {
+
+            private int cost = 10;
+
+            private int poolSize = Runtime.getRuntime().availableProcessors();
+
+            private int queueCapacity = 100;
+
+            public int getCost() {
+                return cost;
+            }
+
+            public void setCost(int cost) {
+                this.cost = cost;
+            }
+
+            public int getPoolSize() {
+                return poolSize;
+            }
+
+            public void setPoolSize(int poolSize) {
+                this.poolSize = poolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+        }
+
         public static class Authentication {
 
             private final Oauth oauth = new Oauth();
@@ -171,6 +695,8 @@ public class JHipsterProperties {
 
                 private int tokenValidityInSeconds = 1800;
 
+                private final TokenCache tokenCache = new TokenCache();
+
                 public String getClientid() {
                     return clientid;
                 }
@@ -194,6 +720,33 @@ public class JHipsterProperties {
                 public void setTokenValidityInSeconds(int tokenValidityInSeconds) {
                     this.tokenValidityInSeconds = tokenValidityInSeconds;
                 }
+
+                public TokenCache getTokenCache() {
+                    return tokenCache;
+                }
+
+                public static class TokenCache {
+
+                    private int maxEntries = 10000;
+
+                    private int timeToLiveSeconds = 300;
+
+                    public int getMaxEntries() {
+                        return maxEntries;
+                    }
+
+                    public void setMaxEntries(int maxEntries) {
+                        this.maxEntries = maxEntries;
+                    }
+
+                    public int getTimeToLiveSeconds() {
+                        return timeToLiveSeconds;
+                    }
+
+                    public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+                        this.timeToLiveSeconds = timeToLiveSeconds;
+                    }
+                }
             }
         }
     }
@@ -301,6 +854,8 @@ public class JHipsterProperties {
 
         private final Logs logs = new Logs();
 
+        private final Requests requests = new Requests();
+
         public Jmx getJmx() {
             return jmx;
         }
@@ -317,6 +872,10 @@ public class JHipsterProperties {
             return logs;
         }
 
+        public Requests getRequests() {
+            return requests;
+        }
+
         public static class Jmx {
 
             private boolean enabled = true;
@@ -428,6 +987,39 @@ public class JHipsterProperties {
                 this.enabled = enabled;
             }
         }
+
+        public static class Requests {
+
+            private boolean enabled = true;
+
+            private long slowThresholdMs = 1000;
+
+            private int repeatedStatementThreshold = 10;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getSlowThresholdMs() {
+                return slowThresholdMs;
+            }
+
+            public void setSlowThresholdMs(long slowThresholdMs) {
+                this.slowThresholdMs = slowThresholdMs;
+            }
+
+            public int getRepeatedStatementThreshold() {
+                return repeatedStatementThreshold;
+            }
+
+            public void setRepeatedStatementThreshold(int repeatedStatementThreshold) {
+                this.repeatedStatementThreshold = repeatedStatementThreshold;
+            }
+        }
     }
 
     private final Logging logging = new Logging();
@@ -438,8 +1030,12 @@ public class JHipsterProperties {
 
         private final Logstash logstash = new Logstash();
 
+        private final Tracing tracing = new Tracing();
+
         public Logstash getLogstash() { return logstash; }
 
+        public Tracing getTracing() { return tracing; }
+
         public static class Logstash {
 
             private boolean enabled = false;
@@ -466,6 +1062,49 @@ public class JHipsterProperties {
 
             public void setQueueSize(int queueSize) { this.queueSize = queueSize; }
         }
+
+        public static class Tracing {
+
+            /**
+             * What the LoggingAspect logs of the calls to the repositories, services and REST resources.
+             */
+            public enum Mode {
+                /**
+                 * Nothing, the aspect is not applied.
+                 */
+                OFF,
+                /**
+                 * The arguments and result of every call, at debug level.
+                 */
+                FULL,
+                /**
+                 * The duration of one call in sampleRate, every call when sampleRate is 1 or less.
+                 */
+                SAMPLED,
+                /**
+                 * The duration of the calls slower than slowThresholdMs.
+                 */
+                SLOW
+            }
+
+            private Mode mode = Mode.OFF;
+
+            private int sampleRate = 100;
+
+            private long slowThresholdMs = 500;
+
+            public Mode getMode() { return mode; }
+
+            public void setMode(Mode mode) { this.mode = mode; }
+
+            public int getSampleRate() { return sampleRate; }
+
+            public void setSampleRate(int sampleRate) { this.sampleRate = sampleRate; }
+
+            public long getSlowThresholdMs() { return slowThresholdMs; }
+
+            public void setSlowThresholdMs(long slowThresholdMs) { this.slowThresholdMs = slowThresholdMs; }
+        }
     }
 
     public static class Ribbon {
@@ -1,6 +1,7 @@
 package com.animalspotting.config;
 
 import com.animalspotting.aop.logging.LoggingAspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.*;
 
 @Configuration
@@ -8,7 +9,7 @@ import org.springframework.context.annotation.*;
 public class LoggingAspectConfiguration {
 
     @Bean
-    @Profile(Constants.SPRING_PROFILE_DEVELOPMENT)
+    @ConditionalOnExpression("!'${jhipster.logging.tracing.mode:off}'.equalsIgnoreCase('off')")
     public LoggingAspect loggingAspect() {
         return new LoggingAspect();
     }
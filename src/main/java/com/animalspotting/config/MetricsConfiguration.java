@@ -1,6 +1,7 @@
 package com.animalspotting.config;
 
 
+import com.animalspotting.async.ExceptionHandlingAsyncTaskExecutor;
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Slf4jReporter;
@@ -16,6 +17,7 @@ import fr.ippon.spark.metrics.SparkReporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.context.annotation.*;
 
@@ -23,6 +25,7 @@ import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
@@ -47,6 +50,10 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
     @Autowired(required = false)
     private HikariDataSource hikariDataSource;
 
+    @Inject
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
     @Override
     @Bean
     public MetricRegistry getMetricRegistry() {
@@ -71,6 +78,10 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
             log.debug("Monitoring the datasource");
             hikariDataSource.setMetricRegistry(metricRegistry);
         }
+        if (taskExecutor instanceof ExceptionHandlingAsyncTaskExecutor) {
+            log.debug("Monitoring the async task executor");
+            ((ExceptionHandlingAsyncTaskExecutor) taskExecutor).setMetricRegistry(metricRegistry);
+        }
         if (jHipsterProperties.getMetrics().getJmx().isEnabled()) {
             log.debug("Initializing Metrics JMX reporting");
             JmxReporter jmxReporter = JmxReporter.forRegistry(metricRegistry).build();
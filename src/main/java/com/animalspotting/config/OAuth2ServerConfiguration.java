@@ -1,8 +1,11 @@
 package com.animalspotting.config;
 
+import com.codahale.metrics.MetricRegistry;
 import com.animalspotting.security.AjaxLogoutSuccessHandler;
 import com.animalspotting.security.AuthoritiesConstants;
+import com.animalspotting.security.CachingJdbcTokenStore;
 import com.animalspotting.security.Http401UnauthorizedEntryPoint;
+import com.animalspotting.security.OAuth2ExceptionTranslator;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,7 +26,6 @@ import org.springframework.security.oauth2.provider.approval.JdbcApprovalStore;
 import org.springframework.security.oauth2.provider.code.AuthorizationCodeServices;
 import org.springframework.security.oauth2.provider.code.JdbcAuthorizationCodeServices;
 import org.springframework.security.oauth2.provider.token.TokenStore;
-import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
 
 import javax.inject.Inject;
 import javax.sql.DataSource;
@@ -34,9 +36,18 @@ public class OAuth2ServerConfiguration {
     @Inject
     private DataSource dataSource;
 
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
     @Bean
-    public TokenStore tokenStore() {
-        return new JdbcTokenStore(dataSource);
+    public CachingJdbcTokenStore tokenStore() {
+        JHipsterProperties.Security.Authentication.Oauth.TokenCache tokenCache =
+            jHipsterProperties.getSecurity().getAuthentication().getOauth().getTokenCache();
+        return new CachingJdbcTokenStore(dataSource, tokenCache.getMaxEntries(), tokenCache.getTimeToLiveSeconds(),
+            metricRegistry);
     }
 
     @Configuration
@@ -119,7 +130,8 @@ public class OAuth2ServerConfiguration {
                 .authorizationCodeServices(authorizationCodeServices())
                 .approvalStore(approvalStore())
                 .tokenStore(tokenStore)
-                .authenticationManager(authenticationManager);
+                .authenticationManager(authenticationManager)
+                .exceptionTranslator(new OAuth2ExceptionTranslator());
         }
 
         @Override
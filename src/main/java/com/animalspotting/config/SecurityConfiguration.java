@@ -1,9 +1,14 @@
 package com.animalspotting.config;
 
+import com.animalspotting.security.BoundedPasswordEncoder;
+import com.animalspotting.security.PasswordUpgradingAuthenticationProvider;
+import com.animalspotting.service.UserService;
 
+import com.codahale.metrics.MetricRegistry;
 import org.springframework.beans.factory.BeanInitializationException;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -14,7 +19,6 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.data.repository.query.SecurityEvaluationContextExtension;
 
@@ -28,17 +32,30 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Inject
     private UserDetailsService userDetailsService;
 
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    @Lazy
+    private UserService userService;
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder() {
+        JHipsterProperties.Security.Password password = jHipsterProperties.getSecurity().getPassword();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(password.getCost()), password.getCost(),
+            password.getPoolSize(), password.getQueueCapacity(), metricRegistry);
     }
 
     @Inject
     public void configureGlobal(AuthenticationManagerBuilder auth) {
         try {
-            auth
-                .userDetailsService(userDetailsService)
-                    .passwordEncoder(passwordEncoder());
+            PasswordUpgradingAuthenticationProvider authenticationProvider =
+                new PasswordUpgradingAuthenticationProvider(passwordEncoder(), userService);
+            authenticationProvider.setUserDetailsService(userDetailsService);
+            auth.authenticationProvider(authenticationProvider);
         } catch (Exception e) {
             throw new BeanInitializationException("Security configuration failed", e);
         }
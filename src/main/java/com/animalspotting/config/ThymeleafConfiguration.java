@@ -21,6 +21,8 @@ public class ThymeleafConfiguration {
         emailTemplateResolver.setTemplateMode("HTML5");
         emailTemplateResolver.setCharacterEncoding(CharEncoding.UTF_8);
         emailTemplateResolver.setOrder(1);
+        // the e-mail templates are parsed once, whatever spring.thymeleaf.cache is
+        emailTemplateResolver.setCacheable(true);
         return emailTemplateResolver;
     }
 }
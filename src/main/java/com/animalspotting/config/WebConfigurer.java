@@ -4,6 +4,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.servlet.InstrumentedFilter;
 import com.codahale.metrics.servlets.MetricsServlet;
 import com.animalspotting.web.filter.CachingHttpHeadersFilter;
+import com.animalspotting.web.filter.RequestMetricsFilter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +15,7 @@ import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
@@ -131,6 +133,15 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
         metricsFilter.addMappingForUrlPatterns(disps, true, "/*");
         metricsFilter.setAsyncSupported(true);
 
+        if (jHipsterProperties.getMetrics().getRequests().isEnabled()) {
+            log.debug("Registering Request Metrics Filter");
+            FilterRegistration.Dynamic requestMetricsFilter = servletContext.addFilter("requestMetricsFilter",
+                new RequestMetricsFilter(metricRegistry, jHipsterProperties));
+
+            requestMetricsFilter.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
+            requestMetricsFilter.setAsyncSupported(true);
+        }
+
         log.debug("Registering Metrics Servlet");
         ServletRegistration.Dynamic metricsAdminServlet =
             servletContext.addServlet("metricsServlet", new MetricsServlet());
@@ -152,6 +163,14 @@ public class WebConfigurer implements ServletContextInitializer, EmbeddedServlet
         return new CorsFilter(source);
     }
 
+    /**
+     * Bean Validation validator, for the REST controllers validating the entities they read themselves.
+     */
+    @Bean
+    public LocalValidatorFactoryBean validator() {
+        return new LocalValidatorFactoryBean();
+    }
+
     /**
      * Initializes H2 console.
      */
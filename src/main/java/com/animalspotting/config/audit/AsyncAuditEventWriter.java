@@ -0,0 +1,196 @@
+package com.animalspotting.config.audit;
+
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.domain.PersistentAuditEvent;
+import com.animalspotting.repository.PersistenceAuditEventRepository;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writer of the audit events, in batches, out of the thread which raised them.
+ * <p>
+ * The events are added to a bounded, lock-free buffer, which a writer thread saves in a single transaction, with
+ * JDBC batch inserts, as soon as it holds batchSize events, or every flushIntervalMs, so a login does not wait
+ * for the audit tables.
+ * When the buffer is full, the events are dropped or their callers wait, depending on the overflow policy.
+ * The buffer is in memory, so it is written when the application is stopped, and the events of a node which
+ * crashes are lost.
+ * </p>
+ * <p>
+ * When the writer is not async, each event is saved at once in its own transaction, as before.
+ * </p>
+ */
+@Component
+public class AsyncAuditEventWriter {
+
+    private final Logger log = LoggerFactory.getLogger(AsyncAuditEventWriter.class);
+
+    private final Queue<PersistentAuditEvent> buffer = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger buffered = new AtomicInteger();
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private TransactionTemplate transactionTemplate;
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    private Meter written;
+
+    private Meter dropped;
+
+    private Meter failed;
+
+    private Timer flushes;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        String prefix = "audit.writer";
+        written = metricRegistry.meter(MetricRegistry.name(prefix, "written"));
+        dropped = metricRegistry.meter(MetricRegistry.name(prefix, "dropped"));
+        failed = metricRegistry.meter(MetricRegistry.name(prefix, "failed"));
+        flushes = metricRegistry.timer(MetricRegistry.name(prefix, "flushes"));
+        metricRegistry.register(MetricRegistry.name(prefix, "buffered"), (Gauge<Integer>) buffered::get);
+        if (jHipsterProperties.getAudit().isAsync()) {
+            running = true;
+            writer = new Thread(this::run, "audit-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Write the audit event, at once or in the next batch.
+     *
+     * @param event the audit event to write
+     */
+    public void write(PersistentAuditEvent event) {
+        if (!running) {
+            save(Collections.singletonList(event));
+            return;
+        }
+        JHipsterProperties.Audit audit = jHipsterProperties.getAudit();
+        if (offer(event)) {
+            return;
+        }
+        if (audit.getOverflowPolicy() == JHipsterProperties.Audit.OverflowPolicy.BLOCK) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(audit.getBlockTimeoutMs());
+            while (System.nanoTime() < deadline) {
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                if (offer(event)) {
+                    return;
+                }
+            }
+        }
+        dropped.mark();
+        log.debug("Audit buffer full, dropped the {} event of {}", event.getAuditEventType(), event.getPrincipal());
+    }
+
+    /**
+     * Write all the buffered audit events.
+     */
+    public void flush() {
+        List<PersistentAuditEvent> batch;
+        while (!(batch = drain()).isEmpty()) {
+            save(batch);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        if (running) {
+            running = false;
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        flush();
+    }
+
+    private boolean offer(PersistentAuditEvent event) {
+        JHipsterProperties.Audit audit = jHipsterProperties.getAudit();
+        int size = buffered.incrementAndGet();
+        if (size > audit.getBufferSize()) {
+            buffered.decrementAndGet();
+            return false;
+        }
+        buffer.add(event);
+        if (size == audit.getBatchSize()) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void run() {
+        long flushInterval = TimeUnit.MILLISECONDS.toNanos(jHipsterProperties.getAudit().getFlushIntervalMs());
+        while (running) {
+            if (buffered.get() < jHipsterProperties.getAudit().getBatchSize()) {
+                LockSupport.parkNanos(this, flushInterval);
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Could not write the audit events", e);
+            }
+        }
+    }
+
+    private List<PersistentAuditEvent> drain() {
+        int batchSize = jHipsterProperties.getAudit().getBatchSize();
+        List<PersistentAuditEvent> batch = new ArrayList<>(Math.min(batchSize, buffered.get()));
+        PersistentAuditEvent event;
+        while (batch.size() < batchSize && (event = buffer.poll()) != null) {
+            buffered.decrementAndGet();
+            batch.add(event);
+        }
+        return batch;
+    }
+
+    private void save(List<PersistentAuditEvent> batch) {
+        Timer.Context context = flushes.time();
+        try {
+            transactionTemplate.execute(status -> persistenceAuditEventRepository.save(batch));
+            written.mark(batch.size());
+        } catch (RuntimeException e) {
+            failed.mark(batch.size());
+            log.error("Could not write {} audit event(s)", batch.size(), e);
+        } finally {
+            context.stop();
+        }
+    }
+}
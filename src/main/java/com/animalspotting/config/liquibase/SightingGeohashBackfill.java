@@ -0,0 +1,63 @@
+package com.animalspotting.config.liquibase;
+
+import com.animalspotting.domain.util.GeoHash;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Liquibase change computing the geohash of the sightings recorded before the column was added.
+ */
+public class SightingGeohashBackfill implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private int updated;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        JdbcConnection connection = (JdbcConnection) database.getConnection();
+        try (Statement select = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement("update sighting set geohash = ? where id = ?")) {
+            ResultSet rows = select.executeQuery("select id, latitude, longitude from sighting where geohash is null");
+            while (rows.next()) {
+                update.setString(1, GeoHash.encode(rows.getFloat("latitude"), rows.getFloat("longitude")));
+                update.setLong(2, rows.getLong("id"));
+                update.addBatch();
+                if (++updated % BATCH_SIZE == 0) {
+                    update.executeBatch();
+                }
+            }
+            update.executeBatch();
+        } catch (Exception e) {
+            throw new CustomChangeException("Could not compute the geohash of existing sightings", e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Computed the geohash of " + updated + " sighting(s)";
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
@@ -0,0 +1,48 @@
+package com.animalspotting.config.mail;
+
+import com.animalspotting.config.JHipsterProperties;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Properties;
+
+/**
+ * Replaces the mail sender of Spring Boot by a {@link PooledJavaMailSender}, configured by the same
+ * "spring.mail" properties.
+ */
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+public class MailConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(MailConfiguration.class);
+
+    @Bean
+    public PooledJavaMailSender mailSender(MailProperties mailProperties, JHipsterProperties jHipsterProperties,
+                                           MetricRegistry metricRegistry) {
+        log.debug("Configuring the pooled mail sender");
+        JHipsterProperties.Mail.Pool pool = jHipsterProperties.getMail().getPool();
+        PooledJavaMailSender mailSender = new PooledJavaMailSender(pool.getSize(), pool.getMaxInFlight(),
+            pool.getMaxMessagesPerConnection(), pool.getMaxIdleMs(), pool.getAcquireTimeoutMs(), metricRegistry);
+        mailSender.setHost(mailProperties.getHost());
+        if (mailProperties.getPort() != null) {
+            mailSender.setPort(mailProperties.getPort());
+        }
+        mailSender.setUsername(mailProperties.getUsername());
+        mailSender.setPassword(mailProperties.getPassword());
+        mailSender.setProtocol(mailProperties.getProtocol());
+        if (mailProperties.getDefaultEncoding() != null) {
+            mailSender.setDefaultEncoding(mailProperties.getDefaultEncoding().name());
+        }
+        if (!mailProperties.getProperties().isEmpty()) {
+            Properties properties = new Properties();
+            properties.putAll(mailProperties.getProperties());
+            mailSender.setJavaMailProperties(properties);
+        }
+        return mailSender;
+    }
+}
@@ -0,0 +1,220 @@
+package com.animalspotting.config.mail;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mail sender keeping its SMTP connections open, to send many e-mails over each of them.
+ * <p>
+ * {@link JavaMailSenderImpl} connects to the SMTP server for each call to {@code send}, so that sending one
+ * e-mail per subscriber costs one TCP and SMTP handshake each. Here, at most {@code size} connections are
+ * opened and returned to the pool after use. A connection is reused unless it has been idle for too long or
+ * has sent the maximum number of e-mails allowed per connection, and a connection failure only fails the
+ * e-mails sent over it. The number of e-mails being sent at a time is bounded, so that senders wait instead of
+ * piling up e-mails when the server is slow.
+ * </p>
+ * <p>
+ * As with {@link JavaMailSenderImpl}, the e-mails which could not be sent are reported in the
+ * {@link MailSendException#getFailedMessages() failed messages} of the exception thrown.
+ * </p>
+ */
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private final Logger log = LoggerFactory.getLogger(PooledJavaMailSender.class);
+
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+
+    private final Semaphore connections;
+
+    private final Semaphore inFlight;
+
+    private final int maxInFlight;
+
+    private final int maxMessagesPerConnection;
+
+    private final long maxIdleMillis;
+
+    private final long acquireTimeoutMillis;
+
+    private final Meter sent;
+
+    private final Meter failed;
+
+    private final Timer connect;
+
+    public PooledJavaMailSender(int size, int maxInFlight, int maxMessagesPerConnection, long maxIdleMillis,
+                                long acquireTimeoutMillis, MetricRegistry metricRegistry) {
+        this.connections = new Semaphore(size, true);
+        this.inFlight = new Semaphore(maxInFlight, true);
+        this.maxInFlight = maxInFlight;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.maxIdleMillis = maxIdleMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        String prefix = "mail";
+        sent = metricRegistry.meter(MetricRegistry.name(prefix, "sent"));
+        failed = metricRegistry.meter(MetricRegistry.name(prefix, "failed"));
+        connect = metricRegistry.timer(MetricRegistry.name(prefix, "connect"));
+        metricRegistry.register(MetricRegistry.name(prefix, "connections", "idle"), (Gauge<Integer>) idle::size);
+        metricRegistry.register(MetricRegistry.name(prefix, "connections", "active"),
+            (Gauge<Integer>) () -> size - connections.availablePermits());
+        metricRegistry.register(MetricRegistry.name(prefix, "in-flight"),
+            (Gauge<Integer>) () -> maxInFlight - inFlight.availablePermits());
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        int permits = Math.min(mimeMessages.length, maxInFlight);
+        acquire(inFlight, permits, "Too many e-mails being sent");
+        try {
+            acquire(connections, 1, "No SMTP connection available");
+            try {
+                send(mimeMessages, originalMessages);
+            } finally {
+                connections.release();
+            }
+        } finally {
+            inFlight.release(permits);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        PooledTransport transport;
+        while ((transport = idle.poll()) != null) {
+            transport.close();
+        }
+    }
+
+    private void send(MimeMessage[] mimeMessages, Object[] originalMessages) {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport transport = borrow();
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                if (transport != null && transport.messages >= maxMessagesPerConnection) {
+                    transport.close();
+                    transport = null;
+                }
+                if (transport == null) {
+                    try {
+                        transport = open();
+                    } catch (MessagingException e) {
+                        // the e-mails left are not sent over a connection which could not be opened
+                        for (int j = i; j < mimeMessages.length; j++) {
+                            failed.mark();
+                            failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], e);
+                        }
+                        break;
+                    }
+                }
+                try {
+                    transport.send(mimeMessages[i]);
+                    sent.mark();
+                } catch (MessagingException e) {
+                    failed.mark();
+                    failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessages[i], e);
+                    if (!transport.transport.isConnected()) {
+                        transport.close();
+                        transport = null;
+                    }
+                }
+            }
+        } finally {
+            if (transport != null) {
+                idle.offerFirst(transport);
+            }
+        }
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    /**
+     * Take the most recently used idle connection which is still open, closing the stale ones.
+     */
+    private PooledTransport borrow() {
+        PooledTransport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - transport.lastUsed < maxIdleMillis && transport.transport.isConnected()) {
+                return transport;
+            }
+            transport.close();
+        }
+        return null;
+    }
+
+    private PooledTransport open() throws MessagingException {
+        Timer.Context context = connect.time();
+        try {
+            log.debug("Opening an SMTP connection to {}:{}", getHost(), getPort());
+            return new PooledTransport(connectTransport());
+        } finally {
+            context.stop();
+        }
+    }
+
+    private void acquire(Semaphore semaphore, int permits, String message) {
+        try {
+            if (!semaphore.tryAcquire(permits, acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MailSendException(message);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException(message, e);
+        }
+    }
+
+    private final class PooledTransport {
+
+        private final Transport transport;
+
+        private int messages;
+
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        private void send(MimeMessage mimeMessage) throws MessagingException {
+            if (mimeMessage.getSentDate() == null) {
+                mimeMessage.setSentDate(new Date());
+            }
+            String messageId = mimeMessage.getMessageID();
+            mimeMessage.saveChanges();
+            if (messageId != null) {
+                // Preserve explicitly specified message id, as saveChanges overrides it
+                mimeMessage.setHeader("Message-ID", messageId);
+            }
+            messages++;
+            lastUsed = System.currentTimeMillis();
+            transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+        }
+
+        private void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Could not close the SMTP connection: {}", e.toString());
+            }
+        }
+    }
+}
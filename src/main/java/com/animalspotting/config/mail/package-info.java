@@ -0,0 +1,4 @@
+/**
+ * Mail specific code.
+ */
+package com.animalspotting.config.mail;
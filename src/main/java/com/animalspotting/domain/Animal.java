@@ -1,5 +1,7 @@
 package com.animalspotting.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -11,6 +13,7 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "animal")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "animal")
 public class Animal implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -1,5 +1,7 @@
 package com.animalspotting.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
@@ -14,6 +16,7 @@ import java.io.Serializable;
  */
 @Entity
 @Table(name = "jhi_authority")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "authority")
 public class Authority implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,87 @@
+package com.animalspotting.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * The lock of a scheduled job, held by one node at a time for a lease.
+ * <p>
+ * A node holds the lock from the time it sets its token and the end of the lease, until it releases it or the
+ * lease ends, so a node which crashes while running the job does not keep it locked.
+ * </p>
+ */
+@Entity
+@Table(name = "job_lock")
+public class JobLock implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @NotNull
+    @Size(max = 50)
+    @Column(name = "name", length = 50, nullable = false)
+    private String name;
+
+    @Size(max = 36)
+    @Column(name = "locked_by", length = 36)
+    private String lockedBy;
+
+    @Column(name = "locked_until")
+    private ZonedDateTime lockedUntil;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getLockedBy() {
+        return lockedBy;
+    }
+
+    public void setLockedBy(String lockedBy) {
+        this.lockedBy = lockedBy;
+    }
+
+    public ZonedDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(ZonedDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        JobLock jobLock = (JobLock) o;
+        if(jobLock.name == null || name == null) {
+            return false;
+        }
+        return Objects.equals(name, jobLock.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(name);
+    }
+
+    @Override
+    public String toString() {
+        return "JobLock{" +
+            "name='" + name + "'" +
+            ", lockedBy='" + lockedBy + "'" +
+            ", lockedUntil='" + lockedUntil + "'" +
+            '}';
+    }
+}
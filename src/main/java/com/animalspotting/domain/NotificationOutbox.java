@@ -0,0 +1,195 @@
+package com.animalspotting.domain;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * An e-mail notification waiting to be sent, written in the transaction of the change it notifies.
+ * <p>
+ * A notification is claimed by a node for a lease, sent, then marked as delivered by the NotificationOutboxService.
+ * If sending fails it is retried after a delay doubled at each attempt, until the maximum number of attempts is
+ * reached.
+ * </p>
+ */
+@Entity
+@Table(name = "notification_outbox")
+public class NotificationOutbox implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The delivery status of a notification.
+     */
+    public enum Status {
+        PENDING,
+        DELIVERED,
+        FAILED
+    }
+
+    /**
+     * Identifiers are allocated by blocks from the notification_outbox_sequence table, so that the notifications
+     * of a sighting are inserted in JDBC batches.
+     */
+    @Id
+    @GeneratedValue(generator = "notificationOutboxSequenceGenerator")
+    @GenericGenerator(name = "notificationOutboxSequenceGenerator",
+        strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+        parameters = {
+            @Parameter(name = "sequence_name", value = "notification_outbox_sequence"),
+            @Parameter(name = "force_table_use", value = "true"),
+            @Parameter(name = "optimizer", value = "pooled"),
+            @Parameter(name = "increment_size", value = "50")
+        })
+    private Long id;
+
+    @NotNull
+    @Size(max = 100)
+    @Column(name = "recipient", length = 100, nullable = false)
+    private String recipient;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    @NotNull
+    @Lob
+    @Column(name = "content", nullable = false)
+    private String content;
+
+    @Column(name = "html", nullable = false)
+    private boolean html;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 10, nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private ZonedDateTime createdDate = ZonedDateTime.now();
+
+    @NotNull
+    @Column(name = "next_attempt_date", nullable = false)
+    private ZonedDateTime nextAttemptDate = createdDate;
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "lease_expiry_date")
+    private ZonedDateTime leaseExpiryDate;
+
+    @Column(name = "delivered_date")
+    private ZonedDateTime deliveredDate;
+
+    @Size(max = 255)
+    @Column(name = "last_error")
+    private String lastError;
+
+    public NotificationOutbox() {
+    }
+
+    public NotificationOutbox(String recipient, String subject, String content, boolean html) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.content = content;
+        this.html = html;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public ZonedDateTime getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public ZonedDateTime getLeaseExpiryDate() {
+        return leaseExpiryDate;
+    }
+
+    public ZonedDateTime getDeliveredDate() {
+        return deliveredDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        NotificationOutbox notificationOutbox = (NotificationOutbox) o;
+        if(notificationOutbox.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, notificationOutbox.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "NotificationOutbox{" +
+            "id=" + id +
+            ", recipient='" + recipient + "'" +
+            ", subject='" + subject + "'" +
+            ", status='" + status + "'" +
+            ", attempts=" + attempts +
+            ", nextAttemptDate='" + nextAttemptDate + "'" +
+            '}';
+    }
+}
@@ -1,5 +1,8 @@
 package com.animalspotting.domain;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import java.time.LocalDateTime;
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -14,8 +17,20 @@ import java.util.Map;
 @Table(name = "jhi_persistent_audit_event")
 public class PersistentAuditEvent {
 
+    /**
+     * Identifiers are allocated by blocks from the jhi_persistent_audit_event_sequence table, so that the events
+     * written together by the AsyncAuditEventWriter are inserted in JDBC batches.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "persistentAuditEventSequenceGenerator")
+    @GenericGenerator(name = "persistentAuditEventSequenceGenerator",
+        strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+        parameters = {
+            @Parameter(name = "sequence_name", value = "jhi_persistent_audit_event_sequence"),
+            @Parameter(name = "force_table_use", value = "true"),
+            @Parameter(name = "optimizer", value = "pooled"),
+            @Parameter(name = "increment_size", value = "50")
+        })
     @Column(name = "event_id")
     private Long id;
 
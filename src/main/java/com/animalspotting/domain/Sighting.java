@@ -1,5 +1,9 @@
 package com.animalspotting.domain;
 
+import com.animalspotting.domain.util.GeoHash;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -16,8 +20,20 @@ public class Sighting implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Identifiers are allocated by blocks from the sighting_sequence table, so that inserts can be batched
+     * (identity columns force Hibernate to insert each row on its own to read its key).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "sightingSequenceGenerator")
+    @GenericGenerator(name = "sightingSequenceGenerator",
+        strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+        parameters = {
+            @Parameter(name = "sequence_name", value = "sighting_sequence"),
+            @Parameter(name = "force_table_use", value = "true"),
+            @Parameter(name = "optimizer", value = "pooled"),
+            @Parameter(name = "increment_size", value = "50")
+        })
     private Long id;
 
     @Column(name = "date")
@@ -35,6 +51,13 @@ public class Sighting implements Serializable {
     @Column(name = "count")
     private Integer count;
 
+    /**
+     * Geohash of the position, maintained from the latitude and longitude to look sightings up by area.
+     */
+    @JsonIgnore
+    @Column(name = "geohash", length = GeoHash.MAX_PRECISION)
+    private String geohash;
+
     @ManyToOne
     @NotNull
     private User user;
@@ -103,6 +126,18 @@ public class Sighting implements Serializable {
         this.count = count;
     }
 
+    public String getGeohash() {
+        return geohash;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void updateGeohash() {
+        if (latitude != null && longitude != null) {
+            geohash = GeoHash.encode(latitude, longitude);
+        }
+    }
+
     public User getUser() {
         return user;
     }
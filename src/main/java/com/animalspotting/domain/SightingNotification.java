@@ -0,0 +1,100 @@
+package com.animalspotting.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * New sightings of an animal whose subscribers have not been notified yet, written in the transaction of the
+ * sightings.
+ * <p>
+ * It only holds the ids of the sightings, so saving a sighting costs one row whatever the number of subscribers:
+ * the subscribers are looked up, and their notifications queued, by the outbox dispatcher.
+ * </p>
+ */
+@Entity
+@Table(name = "sighting_notification")
+public class SightingNotification implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @NotNull
+    @Column(name = "animal_id", nullable = false)
+    private Long animalId;
+
+    @NotNull
+    @Lob
+    @Column(name = "sighting_ids", nullable = false)
+    private String sightingIds;
+
+    @NotNull
+    @Column(name = "created_date", nullable = false)
+    private ZonedDateTime createdDate = ZonedDateTime.now();
+
+    public SightingNotification() {
+    }
+
+    public SightingNotification(Long animalId, List<Long> sightingIds) {
+        this.animalId = animalId;
+        this.sightingIds = sightingIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAnimalId() {
+        return animalId;
+    }
+
+    public List<Long> getSightingIds() {
+        return Arrays.stream(sightingIds.split(",")).map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SightingNotification sightingNotification = (SightingNotification) o;
+        if(sightingNotification.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, sightingNotification.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "SightingNotification{" +
+            "id=" + id +
+            ", animalId=" + animalId +
+            ", sightingIds='" + sightingIds + "'" +
+            ", createdDate='" + createdDate + "'" +
+            '}';
+    }
+}
@@ -0,0 +1,123 @@
+package com.animalspotting.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The number of sightings of an animal in a bucket, a day or a geohash cell.
+ * <p>
+ * The rows are maintained by the SightingStatsService, which adds its in-memory counters to them periodically.
+ * </p>
+ */
+@Entity
+@Table(name = "sighting_stats")
+public class SightingStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kinds of buckets sightings are counted in.
+     */
+    public enum BucketType {
+        /** The ISO date of the sighting */
+        DAY,
+        /** The geohash of the sighting, truncated to the configured precision */
+        CELL
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @NotNull
+    @Column(name = "animal_id", nullable = false)
+    private Long animalId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "bucket_type", length = 8, nullable = false)
+    private BucketType bucketType;
+
+    @NotNull
+    @Column(name = "bucket", length = 16, nullable = false)
+    private String bucket;
+
+    @Column(name = "sightings", nullable = false)
+    private long sightings;
+
+    @Column(name = "individuals", nullable = false)
+    private long individuals;
+
+    public SightingStats() {
+    }
+
+    public SightingStats(Long animalId, BucketType bucketType, String bucket, long sightings, long individuals) {
+        this.animalId = animalId;
+        this.bucketType = bucketType;
+        this.bucket = bucket;
+        this.sightings = sightings;
+        this.individuals = individuals;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAnimalId() {
+        return animalId;
+    }
+
+    public BucketType getBucketType() {
+        return bucketType;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public long getSightings() {
+        return sightings;
+    }
+
+    public long getIndividuals() {
+        return individuals;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SightingStats sightingStats = (SightingStats) o;
+        if(sightingStats.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, sightingStats.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "SightingStats{" +
+            "id=" + id +
+            ", animalId=" + animalId +
+            ", bucketType='" + bucketType + "'" +
+            ", bucket='" + bucket + "'" +
+            ", sightings=" + sightings +
+            ", individuals=" + individuals +
+            '}';
+    }
+}
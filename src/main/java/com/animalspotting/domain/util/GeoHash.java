@@ -0,0 +1,126 @@
+package com.animalspotting.domain.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Utility class for <a href="https://en.wikipedia.org/wiki/Geohash">geohash</a> encoding.
+ *
+ * <p>
+ * A geohash is a base 32 string where each character refines the cell of the previous ones, so that all the
+ * points of a cell share the same prefix. Storing it in an indexed column turns a bounding box lookup into a
+ * few index range scans, one per prefix of the cells covering the box.
+ * </p>
+ */
+public final class GeoHash {
+
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoHash() {
+    }
+
+    /**
+     * Encode a position as a geohash.
+     *
+     * @param latitude the latitude, in degrees
+     * @param longitude the longitude, in degrees
+     * @param precision the number of characters of the geohash, between 1 and {@link #MAX_PRECISION}
+     * @return the geohash of the cell containing the position
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean evenBit = true;
+        for (int i = 0; i < precision; i++) {
+            int index = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (longitude >= mid) {
+                        index = (index << 1) | 1;
+                        minLon = mid;
+                    } else {
+                        index = index << 1;
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (latitude >= mid) {
+                        index = (index << 1) | 1;
+                        minLat = mid;
+                    } else {
+                        index = index << 1;
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+            hash[i] = BASE_32[index];
+        }
+        return new String(hash);
+    }
+
+    /**
+     * Encode a position as a geohash of {@link #MAX_PRECISION} characters.
+     *
+     * @param latitude the latitude, in degrees
+     * @param longitude the longitude, in degrees
+     * @return the geohash of the cell containing the position
+     */
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, MAX_PRECISION);
+    }
+
+    /**
+     * Compute the geohash prefixes of the cells covering a bounding box.
+     * <p>
+     * The most precise level for which the box is covered by at most {@code maxCells} cells is used, so that
+     * little space outside the box is scanned.
+     * </p>
+     *
+     * @param minLat the southern latitude of the box
+     * @param minLon the western longitude of the box
+     * @param maxLat the northern latitude of the box
+     * @param maxLon the eastern longitude of the box
+     * @param maxCells the maximum number of prefixes to return, at least 32
+     * @return the geohash prefixes of the covering cells
+     */
+    public static Set<String> coveringPrefixes(double minLat, double minLon, double maxLat, double maxLon, int maxCells) {
+        int precision = MAX_PRECISION;
+        while (precision > 1 && countCells(minLat, minLon, maxLat, maxLon, precision) > maxCells) {
+            precision--;
+        }
+        double cellHeight = cellHeight(precision);
+        double cellWidth = cellWidth(precision);
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (long row = cellIndex(minLat + 90, cellHeight); row <= cellIndex(maxLat + 90, cellHeight); row++) {
+            double latitude = Math.min(-90 + (row + 0.5) * cellHeight, 90);
+            for (long column = cellIndex(minLon + 180, cellWidth); column <= cellIndex(maxLon + 180, cellWidth); column++) {
+                double longitude = Math.min(-180 + (column + 0.5) * cellWidth, 180);
+                prefixes.add(encode(latitude, longitude, precision));
+            }
+        }
+        return prefixes;
+    }
+
+    private static long countCells(double minLat, double minLon, double maxLat, double maxLon, int precision) {
+        long rows = cellIndex(maxLat + 90, cellHeight(precision)) - cellIndex(minLat + 90, cellHeight(precision)) + 1;
+        long columns = cellIndex(maxLon + 180, cellWidth(precision)) - cellIndex(minLon + 180, cellWidth(precision)) + 1;
+        return rows * columns;
+    }
+
+    private static long cellIndex(double offset, double cellSize) {
+        return (long) Math.floor(offset / cellSize);
+    }
+
+    private static double cellHeight(int precision) {
+        return 180.0 / (1L << (5 * precision / 2));
+    }
+
+    private static double cellWidth(int precision) {
+        return 360.0 / (1L << ((5 * precision + 1) / 2));
+    }
+}
@@ -0,0 +1,89 @@
+package com.animalspotting.domain.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistics of the JDBC statements executed by Hibernate on the current thread, since they were last reset.
+ * <p>
+ * The executions are timed by the {@link JdbcStatisticsSessionEventListener}, and the statements are counted by
+ * their SQL by the {@link JdbcStatisticsInterceptor}, so that a request can tell the time it spent in the
+ * database from the rest, and the statements it repeats.
+ * </p>
+ */
+public final class JdbcStatistics {
+
+    private static final ThreadLocal<JdbcStatistics> CURRENT = ThreadLocal.withInitial(JdbcStatistics::new);
+
+    private long statements;
+
+    private long nanos;
+
+    private final Map<String, Integer> statementCounts = new HashMap<>();
+
+    private JdbcStatistics() {
+    }
+
+    /**
+     * @return the statistics of the current thread
+     */
+    public static JdbcStatistics current() {
+        return CURRENT.get();
+    }
+
+    public void reset() {
+        statements = 0;
+        nanos = 0;
+        statementCounts.clear();
+    }
+
+    /**
+     * @return a copy of these statistics, which is not updated anymore
+     */
+    public JdbcStatistics snapshot() {
+        JdbcStatistics snapshot = new JdbcStatistics();
+        snapshot.statements = statements;
+        snapshot.nanos = nanos;
+        snapshot.statementCounts.putAll(statementCounts);
+        return snapshot;
+    }
+
+    /**
+     * @return the number of statements and batches executed
+     */
+    public long getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return the time spent executing them, in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Return the statements prepared more than the given number of times, which usually come from an N+1 select.
+     *
+     * @param threshold the number of times a statement may be prepared
+     * @return the SQL of the repeated statements, with the number of times they were prepared
+     */
+    public Map<String, Integer> getRepeatedStatements(int threshold) {
+        Map<String, Integer> repeated = new HashMap<>();
+        statementCounts.forEach((sql, count) -> {
+            if (count > threshold) {
+                repeated.put(sql, count);
+            }
+        });
+        return repeated;
+    }
+
+    void record(long nanos) {
+        this.statements++;
+        this.nanos += nanos;
+    }
+
+    void recordStatement(String sql) {
+        statementCounts.merge(sql, 1, Integer::sum);
+    }
+}
@@ -0,0 +1,21 @@
+package com.animalspotting.domain.util;
+
+import org.hibernate.EmptyInterceptor;
+
+/**
+ * Hibernate interceptor counting the statements prepared, by their SQL, in the {@link JdbcStatistics} of the
+ * current thread.
+ * <p>
+ * It is shared by all the sessions, with the {@code hibernate.ejb.interceptor} property.
+ * </p>
+ */
+public class JdbcStatisticsInterceptor extends EmptyInterceptor {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String onPrepareStatement(String sql) {
+        JdbcStatistics.current().recordStatement(sql);
+        return sql;
+    }
+}
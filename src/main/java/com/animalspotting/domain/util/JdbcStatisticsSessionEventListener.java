@@ -0,0 +1,37 @@
+package com.animalspotting.domain.util;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Hibernate session listener recording the JDBC statements executed in the {@link JdbcStatistics} of the
+ * current thread.
+ * <p>
+ * It is added to every session with the {@code hibernate.session.events.auto} property.
+ * </p>
+ */
+public class JdbcStatisticsSessionEventListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private long executionStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        JdbcStatistics.current().record(System.nanoTime() - executionStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        JdbcStatistics.current().record(System.nanoTime() - executionStart);
+    }
+}
@@ -1,13 +1,12 @@
 package com.animalspotting.repository;
 
+import com.animalspotting.config.audit.AsyncAuditEventWriter;
 import com.animalspotting.config.audit.AuditEventConverter;
 import com.animalspotting.domain.PersistentAuditEvent;
 
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
 import java.time.Instant;
@@ -18,6 +17,9 @@ import java.util.List;
 
 /**
  * An implementation of Spring Boot's AuditEventRepository.
+ * <p>
+ * The events are written by the {@link AsyncAuditEventWriter}, so the authentications do not wait for them.
+ * </p>
  */
 @Repository
 public class CustomAuditEventRepository implements AuditEventRepository {
@@ -32,6 +34,9 @@ public class CustomAuditEventRepository implements AuditEventRepository {
     @Inject
     private AuditEventConverter auditEventConverter;
 
+    @Inject
+    private AsyncAuditEventWriter asyncAuditEventWriter;
+
     @Override
     public List<AuditEvent> find(Date after) {
         Iterable<PersistentAuditEvent> persistentAuditEvents =
@@ -61,7 +66,6 @@ public class CustomAuditEventRepository implements AuditEventRepository {
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void add(AuditEvent event) {
         if (!AUTHORIZATION_FAILURE.equals(event.getType()) &&
             !ANONYMOUS_USER.equals(event.getPrincipal().toString())) {
@@ -72,7 +76,7 @@ public class CustomAuditEventRepository implements AuditEventRepository {
             Instant instant = Instant.ofEpochMilli(event.getTimestamp().getTime());
             persistentAuditEvent.setAuditEventDate(LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
             persistentAuditEvent.setData(auditEventConverter.convertDataToStrings(event.getData()));
-            persistenceAuditEventRepository.save(persistentAuditEvent);
+            asyncAuditEventWriter.write(persistentAuditEvent);
         }
     }
 }
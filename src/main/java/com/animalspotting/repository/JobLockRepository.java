@@ -0,0 +1,31 @@
+package com.animalspotting.repository;
+
+import com.animalspotting.domain.JobLock;
+
+import org.springframework.data.jpa.repository.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Spring Data JPA repository for the JobLock entity.
+ */
+public interface JobLockRepository extends JpaRepository<JobLock,String> {
+
+    /**
+     * Lock a job, if it is not locked or its lease has ended.
+     * <p>
+     * The condition is checked on the locked row, so only one of the nodes locking the job concurrently gets it.
+     * </p>
+     *
+     * @return 1 if the job was locked, 0 otherwise
+     */
+    @Modifying
+    @Query("update JobLock jobLock set jobLock.lockedBy = ?2, jobLock.lockedUntil = ?3 " +
+        "where jobLock.name = ?1 and (jobLock.lockedUntil is null or jobLock.lockedUntil < ?4)")
+    int lock(String name, String lockedBy, ZonedDateTime lockedUntil, ZonedDateTime now);
+
+    @Modifying
+    @Query("update JobLock jobLock set jobLock.lockedBy = null, jobLock.lockedUntil = null " +
+        "where jobLock.name = ?1 and jobLock.lockedBy = ?2")
+    int unlock(String name, String lockedBy);
+}
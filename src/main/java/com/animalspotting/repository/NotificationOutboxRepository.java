@@ -0,0 +1,69 @@
+package com.animalspotting.repository;
+
+import com.animalspotting.domain.NotificationOutbox;
+import com.animalspotting.domain.NotificationOutbox.Status;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the NotificationOutbox entity.
+ */
+@SuppressWarnings("unused")
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox,Long> {
+
+    @Query("select outbox.id from NotificationOutbox outbox where outbox.status = 'PENDING' " +
+        "and outbox.nextAttemptDate <= ?1 and (outbox.leaseExpiryDate is null or outbox.leaseExpiryDate < ?1) " +
+        "order by outbox.nextAttemptDate")
+    List<Long> findClaimableIds(ZonedDateTime now, Pageable pageable);
+
+    /**
+     * Claim the notifications which are still claimable among the given ones.
+     * <p>
+     * The condition is checked again on the locked rows, so that a notification claimed concurrently by another
+     * node is skipped instead of being sent twice.
+     * </p>
+     */
+    @Modifying
+    @Query("update NotificationOutbox outbox set outbox.claimToken = ?1, outbox.leaseExpiryDate = ?2 " +
+        "where outbox.id in ?3 and outbox.status = 'PENDING' " +
+        "and (outbox.leaseExpiryDate is null or outbox.leaseExpiryDate < ?4)")
+    int claim(String claimToken, ZonedDateTime leaseExpiryDate, Collection<Long> ids, ZonedDateTime now);
+
+    List<NotificationOutbox> findByClaimToken(String claimToken);
+
+    /**
+     * Mark the given notifications as delivered and release their claim, unless the claim has been lost.
+     *
+     * @return the number of notifications still claimed with the given token, and marked
+     */
+    @Modifying
+    @Query("update NotificationOutbox outbox set outbox.status = 'DELIVERED', outbox.attempts = outbox.attempts + 1, " +
+        "outbox.deliveredDate = ?3, outbox.claimToken = null, outbox.leaseExpiryDate = null " +
+        "where outbox.id in ?1 and outbox.claimToken = ?2")
+    int markDelivered(Collection<Long> ids, String claimToken, ZonedDateTime deliveredDate);
+
+    /**
+     * Record a failed attempt of a notification and release its claim, unless the claim has been lost.
+     *
+     * @return 1 if the notification was still claimed with the given token, and marked, 0 otherwise
+     */
+    @Modifying
+    @Query("update NotificationOutbox outbox set outbox.status = ?3, outbox.attempts = outbox.attempts + 1, " +
+        "outbox.lastError = ?4, outbox.nextAttemptDate = ?5, outbox.claimToken = null, outbox.leaseExpiryDate = null " +
+        "where outbox.id = ?1 and outbox.claimToken = ?2")
+    int markFailed(Long id, String claimToken, Status status, String lastError, ZonedDateTime nextAttemptDate);
+
+    long countByStatus(Status status);
+
+    @Query("select min(outbox.createdDate) from NotificationOutbox outbox where outbox.status = 'PENDING'")
+    ZonedDateTime findOldestPendingCreatedDate();
+
+    @Modifying
+    @Query("delete from NotificationOutbox outbox where outbox.status <> 'PENDING' and outbox.createdDate < ?1")
+    int deleteCompletedBefore(ZonedDateTime date);
+}
@@ -4,9 +4,13 @@ import com.animalspotting.domain.PersistentAuditEvent;
 
 import java.time.LocalDateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 /**
@@ -23,4 +27,24 @@ public interface PersistenceAuditEventRepository extends JpaRepository<Persisten
     List<PersistentAuditEvent> findByPrincipalAndAuditEventDateAfterAndAuditEventType(String principle, LocalDateTime after, String type);
 
     Page<PersistentAuditEvent> findAllByAuditEventDateBetween(LocalDateTime fromDate, LocalDateTime toDate, Pageable pageable);
+
+    Slice<PersistentAuditEvent> findByIdGreaterThan(Long id, Pageable pageable);
+
+    @Query("select min(event.auditEventDate) from PersistentAuditEvent event")
+    LocalDateTime findOldestAuditEventDate();
+
+    /**
+     * Delete the data of the audit events of a date range, before the events themselves, as a bulk delete does
+     * not cascade to the element collection.
+     */
+    @Modifying
+    @Query(value = "delete from jhi_persistent_audit_evt_data where event_id in " +
+        "(select event_id from jhi_persistent_audit_event where event_date >= ?1 and event_date < ?2)",
+        nativeQuery = true)
+    int deleteDataByAuditEventDateBetween(Timestamp fromDate, Timestamp toDate);
+
+    @Modifying
+    @Query(value = "delete from jhi_persistent_audit_event where event_date >= ?1 and event_date < ?2",
+        nativeQuery = true)
+    int deleteByAuditEventDateBetween(Timestamp fromDate, Timestamp toDate);
 }
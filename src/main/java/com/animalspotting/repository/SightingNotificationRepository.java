@@ -0,0 +1,29 @@
+package com.animalspotting.repository;
+
+import com.animalspotting.domain.SightingNotification;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the SightingNotification entity.
+ */
+@SuppressWarnings("unused")
+public interface SightingNotificationRepository extends JpaRepository<SightingNotification,Long> {
+
+    @Query("select notification.id from SightingNotification notification where notification.id > ?1 " +
+        "order by notification.id")
+    List<Long> findIdsAfter(Long id, Pageable pageable);
+
+    /**
+     * Delete a notification, to claim it: the node which deletes it queues its e-mails in the same transaction,
+     * and a node deleting it concurrently deletes nothing once the first one commits.
+     *
+     * @return 1 if the notification was deleted, 0 otherwise
+     */
+    @Modifying
+    @Query("delete from SightingNotification notification where notification.id = ?1")
+    int deleteOneById(Long id);
+}
@@ -2,6 +2,10 @@ package com.animalspotting.repository;
 
 import com.animalspotting.domain.Sighting;
 
+import com.animalspotting.service.dto.SightingDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 
 import java.util.List;
@@ -10,9 +14,20 @@ import java.util.List;
  * Spring Data JPA repository for the Sighting entity.
  */
 @SuppressWarnings("unused")
-public interface SightingRepository extends JpaRepository<Sighting,Long> {
+public interface SightingRepository extends JpaRepository<Sighting,Long>, JpaSpecificationExecutor<Sighting> {
 
     @Query("select sighting from Sighting sighting where sighting.user.login = ?#{principal.username}")
     List<Sighting> findByUserIsCurrentUser();
 
+    @Query("select new com.animalspotting.service.dto.SightingDTO(sighting.id, sighting.date, " +
+        "sighting.longitude, sighting.latitude, sighting.count, animal.id, animal.name, user.login) " +
+        "from Sighting sighting join sighting.animal animal join sighting.user user where sighting.id > ?1")
+    Slice<SightingDTO> findDTOsByIdGreaterThan(Long id, Pageable pageable);
+
+    @Query(value = "select new com.animalspotting.service.dto.SightingDTO(sighting.id, sighting.date, " +
+        "sighting.longitude, sighting.latitude, sighting.count, animal.id, animal.name, user.login) " +
+        "from Sighting sighting join sighting.animal animal join sighting.user user",
+        countQuery = "select count(sighting) from Sighting sighting")
+    Page<SightingDTO> findAllDTOs(Pageable pageable);
+
 }
@@ -0,0 +1,29 @@
+package com.animalspotting.repository;
+
+import com.animalspotting.domain.SightingStats;
+import com.animalspotting.domain.SightingStats.BucketType;
+
+import org.springframework.data.jpa.repository.*;
+
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the SightingStats entity.
+ */
+@SuppressWarnings("unused")
+public interface SightingStatsRepository extends JpaRepository<SightingStats,Long> {
+
+    List<SightingStats> findByAnimalIdAndBucketTypeOrderByBucket(Long animalId, BucketType bucketType);
+
+    List<SightingStats> findByAnimalIdAndBucketTypeAndBucketBetweenOrderByBucket(Long animalId, BucketType bucketType,
+                                                                               String from, String to);
+
+    @Modifying
+    @Query("update SightingStats stats set stats.sightings = stats.sightings + ?4, stats.individuals = stats.individuals + ?5 " +
+        "where stats.animalId = ?1 and stats.bucketType = ?2 and stats.bucket = ?3")
+    int increment(Long animalId, BucketType bucketType, String bucket, long sightings, long individuals);
+
+    @Modifying
+    @Query("delete from SightingStats stats where stats.animalId = ?1")
+    int deleteByAnimalId(Long animalId);
+}
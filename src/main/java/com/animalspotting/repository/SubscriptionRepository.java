@@ -3,8 +3,13 @@ package com.animalspotting.repository;
 import com.animalspotting.domain.Animal;
 import com.animalspotting.domain.Subscription;
 
+import com.animalspotting.service.dto.SubscriptionDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 /**
@@ -17,4 +22,22 @@ public interface SubscriptionRepository extends JpaRepository<Subscription,Long>
     List<Subscription> findByUserIsCurrentUser();
 
     List<Subscription> findByAnimal(Animal animal);
+
+    @Query(value = "select new com.animalspotting.service.dto.SubscriptionDTO(subscription.id, " +
+        "subscription.description, animal.id, animal.name, user.login) " +
+        "from Subscription subscription join subscription.animal animal join subscription.user user",
+        countQuery = "select count(subscription) from Subscription subscription")
+    Page<SubscriptionDTO> findAllDTOs(Pageable pageable);
+
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion", value = "subscriptionsByAnimal")
+    })
+    @Query("select subscription.user.email, subscription.user.langKey from Subscription subscription " +
+        "where subscription.animal.id = ?1 order by subscription.id")
+    Slice<Object[]> findSubscribersByAnimalId(Long animalId, Pageable pageable);
+
+    @Query("select subscription.id, subscription.animal.id, subscription.user.id, subscription.user.email, " +
+        "subscription.user.langKey from Subscription subscription")
+    Slice<Object[]> findAllRoutes(Pageable pageable);
 }
@@ -5,9 +5,12 @@ import com.animalspotting.domain.User;
 import java.time.ZonedDateTime;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +29,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findOneByLogin(String login);
 
+    @EntityGraph(attributePaths = "authorities")
+    Optional<User> findOneWithAuthoritiesByLogin(String login);
+
     Optional<User> findOneById(Long userId);
 
     @Query(value = "select distinct user from User user left join fetch user.authorities",
@@ -35,4 +41,48 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Override
     void delete(User t);
 
+    @Query("select user.id from User user where user.activated = false and user.createdDate < ?1 order by user.id")
+    List<Long> findNotActivatedIdsByCreatedDateBefore(ZonedDateTime dateTime, Pageable pageable);
+
+    @Query("select user.login from User user where user.id in ?1")
+    List<String> findLoginsByIdIn(Collection<Long> ids);
+
+    /**
+     * Delete the refresh tokens of the access tokens of users, before the access tokens themselves, as the
+     * refresh tokens are only linked to the users through them.
+     */
+    @Modifying
+    @Query(value = "delete from oauth_refresh_token where token_id in " +
+        "(select refresh_token from oauth_access_token where user_name in " +
+        "(select login from jhi_user where id in (?1)))",
+        nativeQuery = true)
+    int deleteRefreshTokensByUserIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "delete from oauth_access_token where user_name in (select login from jhi_user where id in (?1))",
+        nativeQuery = true)
+    int deleteAccessTokensByUserIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "delete from oauth_client_token where user_name in (select login from jhi_user where id in (?1))",
+        nativeQuery = true)
+    int deleteClientTokensByUserIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "delete from oauth_approvals where userId in (select login from jhi_user where id in (?1))",
+        nativeQuery = true)
+    int deleteApprovalsByUserIdIn(Collection<Long> ids);
+
+    /**
+     * Delete the authorities of users, before the users themselves, as a bulk delete does not cascade to the
+     * join table.
+     */
+    @Modifying
+    @Query(value = "delete from jhi_user_authority where user_id in (?1)", nativeQuery = true)
+    int deleteAuthoritiesByUserIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from User user where user.id in ?1")
+    int deleteByIdIn(Collection<Long> ids);
+
 }
@@ -0,0 +1,118 @@
+package com.animalspotting.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Password encoder hashing the passwords on a bounded pool of threads.
+ * <p>
+ * BCrypt is made to be slow, so a burst of logins would otherwise keep every request thread busy hashing, and
+ * starve the cheap requests of CPU. At most poolSize passwords are hashed at a time, and at most queueCapacity
+ * wait; beyond that, a {@link PasswordHashingRejectedException} is thrown at once, which is answered with a 503.
+ * </p>
+ * <p>
+ * The hashes of a lower BCrypt cost than the configured one can be told by {@link #upgradeEncoding(String)}, so
+ * they can be upgraded when their user logs in.
+ * </p>
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final PasswordEncoder delegate;
+
+    private final int cost;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer encode;
+
+    private final Timer matches;
+
+    private final Timer queueWait;
+
+    private final Meter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int cost, int poolSize, int queueCapacity,
+                                  MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.cost = cost;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-encoder-"));
+        String prefix = "password.encoder";
+        encode = metricRegistry.timer(MetricRegistry.name(prefix, "encode"));
+        matches = metricRegistry.timer(MetricRegistry.name(prefix, "matches"));
+        queueWait = metricRegistry.timer(MetricRegistry.name(prefix, "queue-wait"));
+        rejected = metricRegistry.meter(MetricRegistry.name(prefix, "rejected"));
+        metricRegistry.register(MetricRegistry.name(prefix, "queued"), (Gauge<Integer>) () -> executor.getQueue().size());
+        metricRegistry.register(MetricRegistry.name(prefix, "active"), (Gauge<Integer>) executor::getActiveCount);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(encode, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hash(matches, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * @param encodedPassword an encoded password
+     * @return whether the encoded password is a BCrypt hash of a lower cost than the configured one
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) < cost;
+    }
+
+    private <T> T hash(Timer timer, Supplier<T> hashing) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWait.update(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                Timer.Context context = timer.time();
+                try {
+                    return hashing.get();
+                } finally {
+                    context.stop();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            throw new PasswordHashingRejectedException("Too many passwords are waiting to be hashed", e);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,225 @@
+package com.animalspotting.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JDBC token store keeping the access tokens it reads in memory.
+ * <p>
+ * Resolving the access token of a request otherwise costs two database reads and the deserialization of the
+ * token and of its authentication. An entry lives until the token expires, but at most the configured time to
+ * live, so a token revoked on another node is only accepted here for a bounded time. Tokens removed through
+ * this store are evicted at once, also by refresh token, through an index of the cached tokens by refresh token.
+ * When the cache is full, the least recently used token is evicted, so every operation on the cache takes
+ * constant time.
+ * </p>
+ * <p>
+ * A request resolves its token with {@link #readAccessToken(String)} then {@link #readAuthentication(String)}:
+ * only the first one counts as a hit or a miss of the cache.
+ * </p>
+ */
+public class CachingJdbcTokenStore extends JdbcTokenStore {
+
+    private final Map<String, Entry> entries;
+
+    private final Map<String, Set<String>> tokensByRefreshToken = new HashMap<>();
+
+    private final Object lock = new Object();
+
+    private final long timeToLiveMillis;
+
+    private final Meter hits;
+
+    private final Meter misses;
+
+    private final Timer deserialization;
+
+    public CachingJdbcTokenStore(DataSource dataSource, int maxEntries, int timeToLiveSeconds,
+                                 MetricRegistry metricRegistry) {
+        super(dataSource);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        this.timeToLiveMillis = timeToLiveSeconds * 1000L;
+        String prefix = "oauth2.token-cache";
+        hits = metricRegistry.meter(MetricRegistry.name(prefix, "hits"));
+        misses = metricRegistry.meter(MetricRegistry.name(prefix, "misses"));
+        deserialization = metricRegistry.timer(MetricRegistry.name("oauth2.token", "deserialization"));
+        metricRegistry.register(MetricRegistry.name(prefix, "size"), (Gauge<Integer>) () -> {
+            synchronized (lock) {
+                return entries.size();
+            }
+        });
+        metricRegistry.register(MetricRegistry.name(prefix, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        Entry entry = get(tokenValue);
+        if (entry != null) {
+            hits.mark();
+            return entry.accessToken;
+        }
+        misses.mark();
+        OAuth2AccessToken accessToken = super.readAccessToken(tokenValue);
+        if (accessToken != null) {
+            put(tokenValue, new Entry(accessToken, null, expiresAt(accessToken)));
+        }
+        return accessToken;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String tokenValue) {
+        Entry entry = get(tokenValue);
+        if (entry != null && entry.authentication != null) {
+            return entry.authentication;
+        }
+        OAuth2Authentication authentication = super.readAuthentication(tokenValue);
+        if (entry != null && authentication != null) {
+            synchronized (lock) {
+                if (entries.get(tokenValue) == entry) {
+                    entries.put(tokenValue, new Entry(entry.accessToken, authentication, entry.expiresAt));
+                }
+            }
+        }
+        return authentication;
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        super.storeAccessToken(token, authentication);
+        remove(token.getValue());
+    }
+
+    @Override
+    public void removeAccessToken(String tokenValue) {
+        super.removeAccessToken(tokenValue);
+        remove(tokenValue);
+    }
+
+    @Override
+    public void removeAccessTokenUsingRefreshToken(String refreshToken) {
+        super.removeAccessTokenUsingRefreshToken(refreshToken);
+        synchronized (lock) {
+            Set<String> tokenValues = tokensByRefreshToken.remove(refreshToken);
+            if (tokenValues != null) {
+                tokenValues.forEach(entries::remove);
+            }
+        }
+    }
+
+    @Override
+    protected OAuth2AccessToken deserializeAccessToken(byte[] token) {
+        Timer.Context context = deserialization.time();
+        try {
+            return super.deserializeAccessToken(token);
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Override
+    protected OAuth2Authentication deserializeAuthentication(byte[] authentication) {
+        Timer.Context context = deserialization.time();
+        try {
+            return super.deserializeAuthentication(authentication);
+        } finally {
+            context.stop();
+        }
+    }
+
+    private Entry get(String tokenValue) {
+        synchronized (lock) {
+            Entry entry = entries.get(tokenValue);
+            if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+                remove(tokenValue);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void put(String tokenValue, Entry entry) {
+        synchronized (lock) {
+            remove(tokenValue);
+            entries.put(tokenValue, entry);
+            String refreshToken = refreshToken(entry);
+            if (refreshToken != null) {
+                tokensByRefreshToken.computeIfAbsent(refreshToken, key -> new HashSet<>()).add(tokenValue);
+            }
+        }
+    }
+
+    private void remove(String tokenValue) {
+        synchronized (lock) {
+            Entry entry = entries.remove(tokenValue);
+            if (entry != null) {
+                unindex(tokenValue, entry);
+            }
+        }
+    }
+
+    private void unindex(String tokenValue, Entry entry) {
+        String refreshToken = refreshToken(entry);
+        if (refreshToken != null) {
+            Set<String> tokenValues = tokensByRefreshToken.get(refreshToken);
+            if (tokenValues != null && tokenValues.remove(tokenValue) && tokenValues.isEmpty()) {
+                tokensByRefreshToken.remove(refreshToken);
+            }
+        }
+    }
+
+    private static String refreshToken(Entry entry) {
+        OAuth2RefreshToken refreshToken = entry.accessToken.getRefreshToken();
+        return refreshToken != null ? refreshToken.getValue() : null;
+    }
+
+    private long expiresAt(OAuth2AccessToken accessToken) {
+        long expiresAt = System.currentTimeMillis() + timeToLiveMillis;
+        if (accessToken.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, accessToken.getExpiration().getTime());
+        }
+        return expiresAt;
+    }
+
+    private static final class Entry {
+
+        private final OAuth2AccessToken accessToken;
+
+        private final OAuth2Authentication authentication;
+
+        private final long expiresAt;
+
+        private Entry(OAuth2AccessToken accessToken, OAuth2Authentication authentication, long expiresAt) {
+            this.accessToken = accessToken;
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.animalspotting.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.error.DefaultWebResponseExceptionTranslator;
+
+/**
+ * Translator of the exceptions of the OAuth2 endpoints, answering a 503 when the password of a grant could not
+ * be checked because too many passwords are waiting to be hashed.
+ */
+public class OAuth2ExceptionTranslator extends DefaultWebResponseExceptionTranslator {
+
+    @Override
+    public ResponseEntity<OAuth2Exception> translate(Exception e) throws Exception {
+        if (e instanceof PasswordHashingRejectedException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new TemporarilyUnavailableException(e.getMessage()));
+        }
+        return super.translate(e);
+    }
+
+    private static class TemporarilyUnavailableException extends OAuth2Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        TemporarilyUnavailableException(String msg) {
+            super(msg);
+        }
+
+        @Override
+        public String getOAuth2ErrorCode() {
+            return "temporarily_unavailable";
+        }
+
+        @Override
+        public int getHttpErrorCode() {
+            return HttpStatus.SERVICE_UNAVAILABLE.value();
+        }
+    }
+}
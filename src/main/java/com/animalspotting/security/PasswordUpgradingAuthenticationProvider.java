@@ -0,0 +1,47 @@
+package com.animalspotting.security;
+
+import com.animalspotting.service.UserService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Authentication provider upgrading the password hashes of a lower cost than the configured one, when their user
+ * logs in, as it is the only time the password is known.
+ * <p>
+ * The new hash is computed on the bounded encoder during the login, so the password is never queued nor passed
+ * to another method, and it is saved asynchronously. When the encoder is saturated, the upgrade is skipped until
+ * the next login.
+ * </p>
+ */
+public class PasswordUpgradingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final Logger log = LoggerFactory.getLogger(PasswordUpgradingAuthenticationProvider.class);
+
+    private final BoundedPasswordEncoder passwordEncoder;
+
+    private final UserService userService;
+
+    public PasswordUpgradingAuthenticationProvider(BoundedPasswordEncoder passwordEncoder, UserService userService) {
+        this.passwordEncoder = passwordEncoder;
+        this.userService = userService;
+        setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails,
+                                                  UsernamePasswordAuthenticationToken authentication) {
+        super.additionalAuthenticationChecks(userDetails, authentication);
+        if (passwordEncoder.upgradeEncoding(userDetails.getPassword())) {
+            try {
+                String upgradedPassword = passwordEncoder.encode(authentication.getCredentials().toString());
+                userService.upgradePassword(userDetails.getUsername(), userDetails.getPassword(), upgradedPassword);
+            } catch (RuntimeException e) {
+                log.warn("Could not upgrade the password hash of {}: {}", userDetails.getUsername(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.animalspotting.security;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cache of the users authenticated by the {@link UserDetailsService}, by lowercase login.
+ * <p>
+ * It holds what is needed to build the user details, and not the user details themselves, as Spring Security
+ * erases their password once the user is authenticated. The users are evicted once the current transaction
+ * commits, and every eviction bumps a generation: a user loaded before an eviction is not put, as it may have been
+ * read before the change was committed. So a user changed on this node is never cached in its previous state; a
+ * change made on another node is ignored for at most the time to live of the "userDetails" cache.
+ * </p>
+ */
+@Component
+public class UserDetailsCache {
+
+    public static final String CACHE_NAME = "userDetails";
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private final Object lock = new Object();
+
+    private long generation;
+
+    private Cache cache;
+
+    @PostConstruct
+    public void init() {
+        cache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    public Entry get(String login) {
+        return cache.get(key(login), Entry.class);
+    }
+
+    /**
+     * @return the current generation, to read before loading a user from the database
+     */
+    public long getGeneration() {
+        synchronized (lock) {
+            return generation;
+        }
+    }
+
+    /**
+     * Put a user, unless a user has been evicted since it was loaded.
+     *
+     * @param login the login of the user
+     * @param entry the user
+     * @param loadedGeneration the generation read before the user was loaded
+     * @return whether the user was put
+     */
+    public boolean put(String login, Entry entry, long loadedGeneration) {
+        synchronized (lock) {
+            if (generation != loadedGeneration) {
+                return false;
+            }
+            cache.put(key(login), entry);
+            return true;
+        }
+    }
+
+    /**
+     * Evict a user, once the current transaction commits, or at once outside of a transaction.
+     *
+     * @param login the login of the user
+     */
+    public void evict(String login) {
+        if (login == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    doEvict(login);
+                }
+            });
+        } else {
+            doEvict(login);
+        }
+    }
+
+    private void doEvict(String login) {
+        synchronized (lock) {
+            generation++;
+            cache.evict(key(login));
+        }
+    }
+
+    private static String key(String login) {
+        return login.toLowerCase(Locale.ENGLISH);
+    }
+
+    public static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String password;
+
+        private final List<GrantedAuthority> authorities;
+
+        public Entry(String password, List<GrantedAuthority> authorities) {
+            this.password = password;
+            this.authorities = authorities;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public List<GrantedAuthority> getAuthorities() {
+            return authorities;
+        }
+    }
+}
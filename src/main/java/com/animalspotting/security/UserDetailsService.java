@@ -13,36 +13,53 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 /**
  * Authenticate a user from the database.
+ * <p>
+ * The activated users are kept in the {@link UserDetailsCache}, with their authorities shared between all the
+ * users, so a password grant does not read the database.
+ * </p>
  */
 @Component("userDetailsService")
 public class UserDetailsService implements org.springframework.security.core.userdetails.UserDetailsService {
 
+    private static final ConcurrentMap<String, GrantedAuthority> AUTHORITIES = new ConcurrentHashMap<>();
+
     private final Logger log = LoggerFactory.getLogger(UserDetailsService.class);
 
     @Inject
     private UserRepository userRepository;
 
+    @Inject
+    private UserDetailsCache userDetailsCache;
+
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(final String login) {
         log.debug("Authenticating {}", login);
         String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
-        Optional<User> userFromDatabase = userRepository.findOneByLogin(lowercaseLogin);
-        return userFromDatabase.map(user -> {
-            if (!user.getActivated()) {
-                throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
-            }
-            List<GrantedAuthority> grantedAuthorities = user.getAuthorities().stream()
-                    .map(authority -> new SimpleGrantedAuthority(authority.getName()))
-                .collect(Collectors.toList());
-            return new org.springframework.security.core.userdetails.User(lowercaseLogin,
-                user.getPassword(),
-                grantedAuthorities);
-        }).orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the " +
-        "database"));
+        UserDetailsCache.Entry entry = userDetailsCache.get(lowercaseLogin);
+        if (entry == null) {
+            long generation = userDetailsCache.getGeneration();
+            Optional<User> userFromDatabase = userRepository.findOneWithAuthoritiesByLogin(lowercaseLogin);
+            entry = userFromDatabase.map(user -> {
+                if (!user.getActivated()) {
+                    throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
+                }
+                List<GrantedAuthority> grantedAuthorities = user.getAuthorities().stream()
+                    .map(authority -> AUTHORITIES.computeIfAbsent(authority.getName(), SimpleGrantedAuthority::new))
+                    .collect(Collectors.toList());
+                return new UserDetailsCache.Entry(user.getPassword(), Collections.unmodifiableList(grantedAuthorities));
+            }).orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the " +
+            "database"));
+            userDetailsCache.put(lowercaseLogin, entry, generation);
+        }
+        return new org.springframework.security.core.userdetails.User(lowercaseLogin,
+            entry.getPassword(),
+            entry.getAuthorities());
     }
 }
@@ -0,0 +1,97 @@
+package com.animalspotting.service;
+
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.repository.PersistenceAuditEventRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Service deleting the audit events older than the retention period.
+ * <p>
+ * The events are deleted one day at a time, from the oldest, each day with two bulk deletes on the date index in
+ * its own transaction, so the audit tables are never locked for long and a purge after years of logins does
+ * not load any event. The purge runs on the node holding its job lock only.
+ * </p>
+ */
+@Service
+public class AuditEventRetentionService {
+
+    private final Logger log = LoggerFactory.getLogger(AuditEventRetentionService.class);
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    @Inject
+    private JobLockService jobLockService;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Delete the audit events older than the retention period, every day at 02:30.
+     *
+     * @return the number of events deleted
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    public int purge() {
+        JHipsterProperties.Audit audit = jHipsterProperties.getAudit();
+        if (audit.getRetentionDays() <= 0) {
+            return 0;
+        }
+        Optional<String> lock = jobLockService.tryLock("purgeAuditEvents", Duration.ofSeconds(audit.getRetentionLockSeconds()));
+        if (!lock.isPresent()) {
+            log.debug("Audit events are being purged by another node");
+            return 0;
+        }
+        try {
+            return purgeBefore(LocalDate.now().minusDays(audit.getRetentionDays()).atStartOfDay());
+        } finally {
+            jobLockService.unlock("purgeAuditEvents", lock.get());
+        }
+    }
+
+    private int purgeBefore(LocalDateTime before) {
+        int deleted = 0;
+        LocalDateTime oldest;
+        while ((oldest = persistenceAuditEventRepository.findOldestAuditEventDate()) != null && oldest.isBefore(before)) {
+            LocalDateTime from = oldest.toLocalDate().atStartOfDay();
+            LocalDateTime to = from.plusDays(1).isAfter(before) ? before : from.plusDays(1);
+            int deletedDay = transactionTemplate.execute(status -> deleteBetween(from, to));
+            if (deletedDay == 0) {
+                log.warn("Could not delete the audit events of {}, stopping the purge", from.toLocalDate());
+                break;
+            }
+            deleted += deletedDay;
+        }
+        log.debug("Deleted {} audit event(s) older than {}", deleted, before);
+        return deleted;
+    }
+
+    private int deleteBetween(LocalDateTime from, LocalDateTime to) {
+        persistenceAuditEventRepository.deleteDataByAuditEventDateBetween(Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return persistenceAuditEventRepository.deleteByAuditEventDateBetween(Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+}
@@ -1,15 +1,20 @@
 package com.animalspotting.service;
 
 import com.animalspotting.config.audit.AuditEventConverter;
+import com.animalspotting.domain.PersistentAuditEvent;
 import com.animalspotting.repository.PersistenceAuditEventRepository;
 import java.time.LocalDateTime;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -45,6 +50,28 @@ public class AuditEventService {
             .map(persistentAuditEvents -> auditEventConverter.convertToAuditEvent(persistentAuditEvents));
     }
 
+    /**
+     * Get the persisted audit events following a given id, ordered by id, without counting them.
+     * <p>
+     * The persisted events are returned, as their id is the cursor of the next page.
+     * </p>
+     *
+     * @param after the id after which the events start, 0 for the first page
+     * @param size the maximum number of events
+     * @return the slice of persisted events
+     */
+    public Slice<PersistentAuditEvent> findAllAfter(Long after, int size) {
+        return persistenceAuditEventRepository.findByIdGreaterThan(after, new PageRequest(0, size, Sort.Direction.ASC, "id"));
+    }
+
+    public List<AuditEvent> convert(List<PersistentAuditEvent> persistentAuditEvents) {
+        return auditEventConverter.convertToAuditEvent(persistentAuditEvents);
+    }
+
+    public long count() {
+        return persistenceAuditEventRepository.count();
+    }
+
     public Optional<AuditEvent> find(Long id) {
         return Optional.ofNullable(persistenceAuditEventRepository.findOne(id)).map
             (auditEventConverter::convertToAuditEvent);
@@ -0,0 +1,72 @@
+package com.animalspotting.service;
+
+import com.animalspotting.repository.JobLockRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service making sure that a scheduled job runs on a single node at a time.
+ * <p>
+ * The locks are rows of the job_lock table, locked for a lease which must be longer than the job, and each
+ * locked and unlocked in its own transaction, so that the other nodes see them at once.
+ * </p>
+ */
+@Service
+public class JobLockService {
+
+    private final Logger log = LoggerFactory.getLogger(JobLockService.class);
+
+    @Inject
+    private JobLockRepository jobLockRepository;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Lock a job, unless another node holds its lock.
+     *
+     * @param name the name of the job, which must have a row in the job_lock table
+     * @param lease the time after which the lock is released if it has not been unlocked
+     * @return the token to unlock the job with, if it was locked
+     */
+    public Optional<String> tryLock(String name, Duration lease) {
+        String token = UUID.randomUUID().toString();
+        ZonedDateTime now = ZonedDateTime.now();
+        int locked = transactionTemplate.execute(status -> jobLockRepository.lock(name, token, now.plus(lease), now));
+        if (locked == 0) {
+            log.debug("Job {} is locked by another node", name);
+            return Optional.empty();
+        }
+        return Optional.of(token);
+    }
+
+    /**
+     * Unlock a job, if its lock is still held with the given token.
+     *
+     * @param name the name of the job
+     * @param token the token returned when the job was locked
+     */
+    public void unlock(String name, String token) {
+        transactionTemplate.execute(status -> jobLockRepository.unlock(name, token));
+    }
+}
@@ -6,18 +6,23 @@ import com.animalspotting.domain.User;
 import org.apache.commons.lang3.CharEncoding;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.MessageSource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring4.SpringTemplateEngine;
 
 
 import javax.inject.Inject;
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Service for sending e-mails.
@@ -40,64 +45,129 @@ public class MailService {
     private JavaMailSenderImpl javaMailSender;
 
     @Inject
-    private MessageSource messageSource;
-
-    @Inject
-    private SpringTemplateEngine templateEngine;
+    private MailTemplateService mailTemplateService;
 
     @Async
     public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
-        log.debug("Send e-mail[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
+        try {
+            deliverEmail(to, subject, content, isMultipart, isHtml);
+        } catch (Exception e) {
+            log.warn("E-mail could not be sent to user '{}'", to, e);
+        }
+    }
+
+    /**
+     * Send an e-mail on the calling thread, and report the failures to the caller.
+     * <p>
+     * This is meant for callers retrying the e-mails they could not send, like the
+     * {@link NotificationOutboxService}.
+     * </p>
+     *
+     * @param to the e-mail address to send to
+     * @param subject the subject of the e-mail
+     * @param content the content of the e-mail
+     * @param isMultipart whether the e-mail is multipart
+     * @param isHtml whether the content is HTML
+     * @throws MessagingException if the e-mail could not be built
+     * @throws MailException if the e-mail could not be sent
+     */
+    public void deliverEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml)
+        throws MessagingException {
+        javaMailSender.send(createEmail(to, subject, content, isMultipart, isHtml));
+        log.debug("Sent e-mail to User '{}'", to);
+    }
+
+    /**
+     * Send several e-mails on the calling thread, over the same SMTP connection.
+     *
+     * @param mimeMessages the e-mails, built with {@link #createEmail}
+     * @throws MailSendException if some e-mails could not be sent, which are its failed messages
+     */
+    public void deliverEmails(MimeMessage... mimeMessages) {
+        javaMailSender.send(mimeMessages);
+        log.debug("Sent {} e-mail(s)", mimeMessages.length);
+    }
+
+    /**
+     * Build an e-mail, to be sent with {@link #deliverEmails}.
+     *
+     * @param to the e-mail address to send to
+     * @param subject the subject of the e-mail
+     * @param content the content of the e-mail
+     * @param isMultipart whether the e-mail is multipart
+     * @param isHtml whether the content is HTML
+     * @return the e-mail
+     * @throws MessagingException if the e-mail could not be built
+     */
+    public MimeMessage createEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml)
+        throws MessagingException {
+        log.debug("Create e-mail[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart, isHtml, to, subject, content);
 
         // Prepare message using a Spring helper
         MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, CharEncoding.UTF_8);
+        message.setTo(to);
+        message.setFrom(jHipsterProperties.getMail().getFrom());
+        message.setSubject(subject);
+        message.setText(content, isHtml);
+        return mimeMessage;
+    }
+
+    /**
+     * Send the same e-mail to several recipients, on the calling thread and over the same SMTP connection.
+     * <p>
+     * This is meant for callers already running on the async executor, which would otherwise queue one task
+     * per recipient. Failures are logged.
+     * </p>
+     *
+     * @param recipients the e-mail addresses to send to
+     * @param subject the subject of the e-mail
+     * @param content the content of the e-mail
+     * @param isMultipart whether the e-mail is multipart
+     * @param isHtml whether the content is HTML
+     */
+    public void sendEmails(Collection<String> recipients, String subject, String content, boolean isMultipart, boolean isHtml) {
+        List<MimeMessage> mimeMessages = new ArrayList<>(recipients.size());
+        for (String to : recipients) {
+            try {
+                mimeMessages.add(createEmail(to, subject, content, isMultipart, isHtml));
+            } catch (MessagingException e) {
+                log.warn("E-mail could not be built for user '{}'", to, e);
+            }
+        }
         try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, CharEncoding.UTF_8);
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            log.debug("Sent e-mail to User '{}'", to);
-        } catch (Exception e) {
-            log.warn("E-mail could not be sent to user '{}'", to, e);
+            deliverEmails(mimeMessages.toArray(new MimeMessage[mimeMessages.size()]));
+        } catch (MailSendException e) {
+            log.warn("{} of {} e-mail(s) could not be sent", e.getFailedMessages().size(), mimeMessages.size(), e);
         }
     }
 
     @Async
     public void sendActivationEmail(User user, String baseUrl) {
         log.debug("Sending activation e-mail to '{}'", user.getEmail());
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable(USER, user);
-        context.setVariable(BASE_URL, baseUrl);
-        String content = templateEngine.process("activationEmail", context);
-        String subject = messageSource.getMessage("email.activation.title", null, locale);
-        sendEmail(user.getEmail(), subject, content, false, true);
+        sendEmailFromTemplate(user, baseUrl, "activationEmail", "email.activation.title");
     }
 
     @Async
     public void sendCreationEmail(User user, String baseUrl) {
         log.debug("Sending creation e-mail to '{}'", user.getEmail());
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable(USER, user);
-        context.setVariable(BASE_URL, baseUrl);
-        String content = templateEngine.process("creationEmail", context);
-        String subject = messageSource.getMessage("email.activation.title", null, locale);
-        sendEmail(user.getEmail(), subject, content, false, true);
+        sendEmailFromTemplate(user, baseUrl, "creationEmail", "email.activation.title");
     }
 
     @Async
     public void sendPasswordResetMail(User user, String baseUrl) {
         log.debug("Sending password reset e-mail to '{}'", user.getEmail());
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable(USER, user);
-        context.setVariable(BASE_URL, baseUrl);
-        String content = templateEngine.process("passwordResetEmail", context);
-        String subject = messageSource.getMessage("email.reset.title", null, locale);
+        sendEmailFromTemplate(user, baseUrl, "passwordResetEmail", "email.reset.title");
+    }
+
+    private void sendEmailFromTemplate(User user, String baseUrl, String templateName, String titleKey) {
+        Locale locale = MailTemplateService.getLocale(user.getLangKey());
+        Map<String, Object> variables = new HashMap<>();
+        variables.put(USER, user);
+        variables.put(BASE_URL, baseUrl);
+        String content = mailTemplateService.render(templateName, locale, variables);
+        String subject = mailTemplateService.getSubject(titleKey, locale);
         sendEmail(user.getEmail(), subject, content, false, true);
     }
 }
@@ -0,0 +1,89 @@
+package com.animalspotting.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring4.SpringTemplateEngine;
+
+import javax.inject.Inject;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Service rendering the e-mails from their Thymeleaf templates.
+ * <p>
+ * The templates are parsed once and kept by the template engine, see the {@code ThymeleafConfiguration}, and
+ * the subjects are resolved once per locale. An e-mail sent to many recipients, like a sighting alert, is
+ * rendered once per language of its recipients instead of once per recipient.
+ * </p>
+ */
+@Service
+public class MailTemplateService {
+
+    private final Logger log = LoggerFactory.getLogger(MailTemplateService.class);
+
+    private final ConcurrentMap<Locale, ConcurrentMap<String, String>> subjects = new ConcurrentHashMap<>();
+
+    @Inject
+    private MessageSource messageSource;
+
+    @Inject
+    private SpringTemplateEngine templateEngine;
+
+    /**
+     * Get the locale of the e-mails sent to a user.
+     *
+     * @param langKey the language of the user, possibly null
+     * @return the locale of the language, or English if the user has none
+     */
+    public static Locale getLocale(String langKey) {
+        return langKey != null ? Locale.forLanguageTag(langKey) : Locale.ENGLISH;
+    }
+
+    /**
+     * Get the subject of an e-mail in a locale.
+     *
+     * @param code the code of the subject in the message bundles
+     * @param locale the locale of the e-mail
+     * @return the subject
+     */
+    public String getSubject(String code, Locale locale) {
+        return subjects.computeIfAbsent(locale, key -> new ConcurrentHashMap<>())
+            .computeIfAbsent(code, key -> messageSource.getMessage(key, null, locale));
+    }
+
+    /**
+     * Render the content of an e-mail.
+     *
+     * @param template the name of the template, in the mails folder
+     * @param locale the locale of the e-mail
+     * @param variables the variables of the template
+     * @return the content
+     */
+    public String render(String template, Locale locale, Map<String, ?> variables) {
+        return templateEngine.process(template, new Context(locale, variables));
+    }
+
+    /**
+     * Render the content of an e-mail sent to many recipients, once per locale of the recipients.
+     *
+     * @param template the name of the template, in the mails folder
+     * @param locales the locales of the recipients, possibly repeated
+     * @param variables the variables of the template, the same for all recipients
+     * @return the content for each locale
+     */
+    public Map<Locale, String> render(String template, Collection<Locale> locales, Map<String, ?> variables) {
+        Map<Locale, String> contents = new LinkedHashMap<>();
+        for (Locale locale : locales) {
+            contents.computeIfAbsent(locale, key -> render(template, key, variables));
+        }
+        log.debug("Rendered template {} in {} locale(s)", template, contents.size());
+        return contents;
+    }
+}
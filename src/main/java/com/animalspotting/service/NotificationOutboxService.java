@@ -0,0 +1,268 @@
+package com.animalspotting.service;
+
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.domain.NotificationOutbox;
+import com.animalspotting.domain.NotificationOutbox.Status;
+import com.animalspotting.repository.NotificationOutboxRepository;
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service sending e-mail notifications through the notification_outbox table.
+ * <p>
+ * Notifications are written in the transaction of the change they notify, so they are neither lost when the
+ * application stops nor sent for a change which is rolled back. Every node polls the table, claims a batch of
+ * due notifications for a lease with a conditional update, and sends them over one SMTP connection outside of
+ * any transaction: a notification claimed by a node is skipped by the others, like with
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED}, but without holding locks while the e-mails are sent. A node
+ * stopping before it marks its batch delivered leaves it to be claimed again when the lease expires, so a
+ * notification is sent at least once.
+ * </p>
+ * <p>
+ * The outcome of a batch is only written to the notifications still claimed with its token: a notification
+ * whose lease expired while the batch was being sent may have been claimed by another node, and is left to it.
+ * </p>
+ */
+@Service
+public class NotificationOutboxService {
+
+    private final Logger log = LoggerFactory.getLogger(NotificationOutboxService.class);
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Inject
+    private MailService mailService;
+
+    @Inject
+    @Lazy
+    private SightingNotificationService sightingNotificationService;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Meter delivered;
+
+    private Meter retried;
+
+    private Meter failed;
+
+    private Meter claimLost;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        String prefix = "notification.outbox";
+        delivered = metricRegistry.meter(MetricRegistry.name(prefix, "delivered"));
+        retried = metricRegistry.meter(MetricRegistry.name(prefix, "retried"));
+        failed = metricRegistry.meter(MetricRegistry.name(prefix, "failed"));
+        claimLost = metricRegistry.meter(MetricRegistry.name(prefix, "claim-lost"));
+        metricRegistry.register(MetricRegistry.name(prefix, "depth"), new CachedGauge<Long>(5, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return notificationOutboxRepository.countByStatus(Status.PENDING);
+            }
+        });
+        metricRegistry.register(MetricRegistry.name(prefix, "lag"), new CachedGauge<Long>(5, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                ZonedDateTime oldest = notificationOutboxRepository.findOldestPendingCreatedDate();
+                return oldest != null ? Duration.between(oldest, ZonedDateTime.now()).toMillis() : 0L;
+            }
+        });
+    }
+
+    /**
+     * Queue the same e-mail to several recipients, in the current transaction.
+     *
+     * @param recipients the e-mail addresses to send to
+     * @param subject the subject of the e-mail
+     * @param content the content of the e-mail
+     * @param isHtml whether the content is HTML
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Collection<String> recipients, String subject, String content, boolean isHtml) {
+        List<NotificationOutbox> notifications = new ArrayList<>(recipients.size());
+        for (String recipient : recipients) {
+            notifications.add(new NotificationOutbox(recipient, subject, content, isHtml));
+        }
+        notificationOutboxRepository.save(notifications);
+    }
+
+    /**
+     * Queue the notifications of the new sightings, then send the due notifications, a batch at a time, until
+     * none is left.
+     *
+     * @return the number of notifications sent
+     */
+    @Scheduled(initialDelayString = "${jhipster.notification.outbox.dispatchDelayMs:1000}",
+        fixedDelayString = "${jhipster.notification.outbox.dispatchDelayMs:1000}")
+    public int dispatch() {
+        sightingNotificationService.expandPending();
+        int sent = 0;
+        Claim claim;
+        do {
+            claim = claim();
+            sent += send(claim);
+        } while (!claim.notifications.isEmpty());
+        return sent;
+    }
+
+    /**
+     * Delete the delivered and failed notifications older than the retention period, every day at 02:00.
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    public void purge() {
+        ZonedDateTime before = ZonedDateTime.now().minusDays(jHipsterProperties.getNotification().getOutbox().getRetentionDays());
+        Integer deleted = transactionTemplate.execute(status -> notificationOutboxRepository.deleteCompletedBefore(before));
+        log.debug("Deleted {} completed notification(s)", deleted);
+    }
+
+    private Claim claim() {
+        JHipsterProperties.Notification.Outbox outbox = jHipsterProperties.getNotification().getOutbox();
+        ZonedDateTime now = ZonedDateTime.now();
+        List<Long> ids = notificationOutboxRepository.findClaimableIds(now,
+            new PageRequest(0, outbox.getDispatchBatchSize()));
+        String claimToken = UUID.randomUUID().toString();
+        if (ids.isEmpty()) {
+            return new Claim(claimToken, new ArrayList<>());
+        }
+        return transactionTemplate.execute(status -> {
+            int claimed = notificationOutboxRepository.claim(claimToken, now.plusSeconds(outbox.getLeaseSeconds()), ids, now);
+            log.debug("Claimed {} of {} notification(s)", claimed, ids.size());
+            return new Claim(claimToken,
+                claimed > 0 ? notificationOutboxRepository.findByClaimToken(claimToken) : new ArrayList<>());
+        });
+    }
+
+    private int send(Claim claim) {
+        List<NotificationOutbox> batch = claim.notifications;
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<NotificationOutbox, Exception> failures = new IdentityHashMap<>();
+        Map<NotificationOutbox, MimeMessage> mimeMessages = new IdentityHashMap<>();
+        for (NotificationOutbox notification : batch) {
+            try {
+                mimeMessages.put(notification, mailService.createEmail(notification.getRecipient(),
+                    notification.getSubject(), notification.getContent(), false, notification.isHtml()));
+            } catch (Exception e) {
+                failures.put(notification, e);
+            }
+        }
+        Map<Object, Exception> failedMessages = new IdentityHashMap<>();
+        try {
+            mailService.deliverEmails(mimeMessages.values().toArray(new MimeMessage[mimeMessages.size()]));
+        } catch (MailSendException e) {
+            failedMessages.putAll(e.getFailedMessages());
+            if (failedMessages.isEmpty()) {
+                mimeMessages.values().forEach(mimeMessage -> failedMessages.put(mimeMessage, e));
+            }
+        } catch (Exception e) {
+            mimeMessages.values().forEach(mimeMessage -> failedMessages.put(mimeMessage, e));
+        }
+        mimeMessages.forEach((notification, mimeMessage) -> {
+            if (failedMessages.containsKey(mimeMessage)) {
+                failures.put(notification, failedMessages.get(mimeMessage));
+            }
+        });
+
+        List<Long> deliveredIds = new ArrayList<>(batch.size());
+        for (NotificationOutbox notification : batch) {
+            if (!failures.containsKey(notification)) {
+                deliveredIds.add(notification.getId());
+            }
+        }
+        transactionTemplate.execute(status -> {
+            int marked = deliveredIds.isEmpty() ? 0 :
+                notificationOutboxRepository.markDelivered(deliveredIds, claim.token, ZonedDateTime.now());
+            delivered.mark(marked);
+            if (marked < deliveredIds.size()) {
+                claimLost(deliveredIds.size() - marked);
+            }
+            failures.forEach((notification, failure) -> failed(notification, failure, claim.token));
+            return null;
+        });
+        return deliveredIds.size();
+    }
+
+    private void failed(NotificationOutbox notification, Exception e, String claimToken) {
+        JHipsterProperties.Notification.Outbox outbox = jHipsterProperties.getNotification().getOutbox();
+        int attempts = notification.getAttempts() + 1;
+        String error = e.toString();
+        error = error.length() > 255 ? error.substring(0, 255) : error;
+        if (attempts < outbox.getMaxAttempts()) {
+            long backoff = Math.min(outbox.getMaxBackoffMs(),
+                outbox.getInitialBackoffMs() << Math.min(attempts - 1, 30));
+            if (notificationOutboxRepository.markFailed(notification.getId(), claimToken, Status.PENDING, error,
+                ZonedDateTime.now().plus(Duration.ofMillis(backoff))) == 0) {
+                claimLost(1);
+                return;
+            }
+            retried.mark();
+            log.debug("Notification {} could not be sent, retrying in {} ms: {}", notification.getId(), backoff, error);
+        } else {
+            if (notificationOutboxRepository.markFailed(notification.getId(), claimToken, Status.FAILED, error,
+                notification.getNextAttemptDate()) == 0) {
+                claimLost(1);
+                return;
+            }
+            failed.mark();
+            log.warn("Notification {} could not be sent after {} attempts", notification.getId(), attempts, e);
+        }
+    }
+
+    private void claimLost(int count) {
+        claimLost.mark(count);
+        log.warn("The lease of {} sent notification(s) expired before they were marked, they are left to the node " +
+            "which claimed them since", count);
+    }
+
+    /**
+     * A batch of notifications claimed with a token.
+     */
+    private static final class Claim {
+
+        private final String token;
+
+        private final List<NotificationOutbox> notifications;
+
+        private Claim(String token, List<NotificationOutbox> notifications) {
+            this.token = token;
+            this.notifications = notifications;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.animalspotting.service;
+
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.domain.Sighting;
+import com.animalspotting.service.event.SightingCreatedEvent;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service notifying the sightings of an animal at most once per window, in digest mode.
+ * <p>
+ * The first committed sighting of an animal opens a digest, which collects the following sightings of the
+ * animal until the end of the window. Each subscriber of the animal then gets a single notification listing
+ * all of them, so a burst of sightings of a herd costs one e-mail per subscriber instead of one per sighting.
+ * </p>
+ * <p>
+ * The digests are kept in a time-wheel of one slot per tick: opening a digest adds it to the slot the wheel
+ * reaches at the end of the window, and each tick only flushes the digests of the slot it reaches. The digests
+ * are in memory until they are flushed, so those still open when the application is stopped are flushed at
+ * once, and those of a node which crashes are lost.
+ * </p>
+ */
+@Service
+public class SightingDigestService {
+
+    private final Logger log = LoggerFactory.getLogger(SightingDigestService.class);
+
+    private final ConcurrentMap<Long, Digest> digests = new ConcurrentHashMap<>();
+
+    private final AtomicLong tick = new AtomicLong();
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private SightingNotificationService sightingNotificationService;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private List<Queue<Digest>> wheel;
+
+    private int ticksPerWindow;
+
+    private Meter flushed;
+
+    @PostConstruct
+    public void init() {
+        JHipsterProperties.Notification.Digest digest = jHipsterProperties.getNotification().getDigest();
+        ticksPerWindow = (int) Math.max(1, (digest.getWindowSeconds() * 1000L + digest.getTickMs() - 1) / digest.getTickMs());
+        wheel = new ArrayList<>(ticksPerWindow + 1);
+        for (int i = 0; i <= ticksPerWindow; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        String prefix = "notification.digest";
+        flushed = metricRegistry.meter(MetricRegistry.name(prefix, "flushed"));
+        metricRegistry.register(MetricRegistry.name(prefix, "open"), (Gauge<Integer>) digests::size);
+    }
+
+    @TransactionalEventListener
+    public void onSightingCreated(SightingCreatedEvent event) {
+        if (jHipsterProperties.getNotification().getDigest().isEnabled()) {
+            add(event.getAnimalId(), event.getSightings());
+        }
+    }
+
+    /**
+     * Flush the digests whose window is over, every tick.
+     */
+    @Scheduled(fixedRateString = "${jhipster.notification.digest.tickMs:1000}")
+    public void advance() {
+        Queue<Digest> slot = wheel.get((int) (tick.incrementAndGet() % wheel.size()));
+        Digest digest;
+        while ((digest = slot.poll()) != null) {
+            flush(digest);
+        }
+    }
+
+    /**
+     * Flush all the open digests, whether their window is over or not.
+     */
+    @PreDestroy
+    public void flushAll() {
+        for (Queue<Digest> slot : wheel) {
+            Digest digest;
+            while ((digest = slot.poll()) != null) {
+                flush(digest);
+            }
+        }
+    }
+
+    private void add(Long animalId, List<Sighting> sightings) {
+        while (true) {
+            Digest digest = digests.computeIfAbsent(animalId, this::open);
+            if (digest.add(sightings)) {
+                return;
+            }
+            // the digest has just been flushed, a new one is opened
+            digests.remove(animalId, digest);
+        }
+    }
+
+    private Digest open(Long animalId) {
+        Digest digest = new Digest(animalId);
+        wheel.get((int) ((tick.get() + ticksPerWindow) % wheel.size())).add(digest);
+        return digest;
+    }
+
+    private void flush(Digest digest) {
+        digests.remove(digest.animalId, digest);
+        List<Sighting> sightings = digest.close();
+        if (sightings.isEmpty()) {
+            return;
+        }
+        try {
+            sightingNotificationService.notifySubscribers(digest.animalId, sightings);
+            flushed.mark();
+        } catch (RuntimeException e) {
+            log.error("Could not notify {} sighting(s) of animal {}", sightings.size(), digest.animalId, e);
+        }
+    }
+
+    private static final class Digest {
+
+        private final Long animalId;
+
+        private final List<Sighting> sightings = new ArrayList<>();
+
+        private boolean closed;
+
+        private Digest(Long animalId) {
+            this.animalId = animalId;
+        }
+
+        private synchronized boolean add(List<Sighting> sightings) {
+            if (closed) {
+                return false;
+            }
+            this.sightings.addAll(sightings);
+            return true;
+        }
+
+        private synchronized List<Sighting> close() {
+            closed = true;
+            return sightings;
+        }
+    }
+}
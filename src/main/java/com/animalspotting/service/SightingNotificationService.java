@@ -0,0 +1,217 @@
+package com.animalspotting.service;
+
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.domain.Animal;
+import com.animalspotting.domain.Sighting;
+import com.animalspotting.domain.SightingNotification;
+import com.animalspotting.repository.AnimalRepository;
+import com.animalspotting.repository.SightingNotificationRepository;
+import com.animalspotting.repository.SightingRepository;
+import com.animalspotting.repository.SubscriptionRepository;
+import com.animalspotting.service.event.SightingCreatedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Service notifying the subscribers of an animal when a new sighting of it is recorded.
+ * <p>
+ * The sighting transaction only writes a {@link SightingNotification} holding the ids of the new sightings, just
+ * before it commits, so its duration does not depend on the number of subscribers. The outbox dispatcher then
+ * expands it into the notifications of the {@link NotificationOutboxService}, in batches, and sends them.
+ * Subscribers are read from the in-memory {@link SubscriptionIndex}, or page by page from the database while
+ * the index is not loaded, and the notification is rendered from the sightingEmail template by the
+ * {@link MailTemplateService}. In digest mode, the sightings are notified by the {@link SightingDigestService}
+ * instead.
+ * </p>
+ */
+@Service
+public class SightingNotificationService {
+
+    private final Logger log = LoggerFactory.getLogger(SightingNotificationService.class);
+
+    private static final String TEMPLATE = "sightingEmail";
+    private static final String SUBJECT = "email.sighting.title";
+    private static final String ANIMAL = "animal";
+    private static final String SIGHTINGS = "sightings";
+    private static final String BASE_URL = "baseUrl";
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private AnimalRepository animalRepository;
+
+    @Inject
+    private SightingRepository sightingRepository;
+
+    @Inject
+    private SightingNotificationRepository sightingNotificationRepository;
+
+    @Inject
+    private SubscriptionRepository subscriptionRepository;
+
+    @Inject
+    private SubscriptionIndex subscriptionIndex;
+
+    @Inject
+    private NotificationOutboxService notificationOutboxService;
+
+    @Inject
+    private MailTemplateService mailTemplateService;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onSightingCreated(SightingCreatedEvent event) {
+        if (jHipsterProperties.getNotification().getDigest().isEnabled()) {
+            // the SightingDigestService notifies the sightings once the window of the animal is over
+            return;
+        }
+        if (event.getAnimalId() == null) {
+            log.warn("Sightings without an animal, no notification sent: {}", event);
+            return;
+        }
+        List<Long> sightingIds = event.getSightings().stream().map(Sighting::getId).collect(Collectors.toList());
+        sightingNotificationRepository.save(new SightingNotification(event.getAnimalId(), sightingIds));
+    }
+
+    /**
+     * Queue the notifications of the pending sightings, each in its own transaction.
+     * <p>
+     * A pending notification is claimed by deleting it, so that it is expanded by a single node. One which cannot
+     * be expanded is kept, and retried at the next call.
+     * </p>
+     *
+     * @return the number of notifications queued
+     */
+    public int expandPending() {
+        int queued = 0;
+        Long lastId = 0L;
+        List<Long> ids;
+        do {
+            ids = sightingNotificationRepository.findIdsAfter(lastId,
+                new PageRequest(0, jHipsterProperties.getNotification().getOutbox().getDispatchBatchSize()));
+            for (Long id : ids) {
+                try {
+                    queued += transactionTemplate.execute(status -> expand(id));
+                } catch (RuntimeException e) {
+                    log.warn("Could not queue the notifications of sighting notification {}: {}", id, e.toString());
+                }
+                lastId = id;
+            }
+        } while (!ids.isEmpty());
+        return queued;
+    }
+
+    private int expand(Long id) {
+        SightingNotification notification = sightingNotificationRepository.findOne(id);
+        if (notification == null || sightingNotificationRepository.deleteOneById(id) == 0) {
+            log.debug("Sighting notification {} was expanded by another node", id);
+            return 0;
+        }
+        List<Sighting> sightings = sightingRepository.findAll(notification.getSightingIds());
+        if (sightings.isEmpty()) {
+            log.debug("Sightings of {} do not exist anymore, no notification sent", notification);
+            return 0;
+        }
+        return notifySubscribers(notification.getAnimalId(), sightings);
+    }
+
+    /**
+     * Queue a notification of sightings of an animal to each of its subscribers.
+     * <p>
+     * The notification is rendered once per language of the subscribers.
+     * </p>
+     *
+     * @param animalId the id of the animal
+     * @param sightings the sightings, listed in the notification
+     * @return the number of subscribers notified
+     */
+    @Transactional
+    public int notifySubscribers(Long animalId, List<Sighting> sightings) {
+        Animal animal = animalRepository.findOne(animalId);
+        if (animal == null) {
+            log.warn("Animal {} does not exist anymore, no notification sent", animalId);
+            return 0;
+        }
+        log.debug("Notifying subscribers of animal {} about {} sighting(s)", animal.getId(), sightings.size());
+        Map<Locale, List<String>> recipients = subscriptionIndex.isLoaded() ?
+            findRecipientsInIndex(animal.getId()) :
+            findRecipientsInDatabase(animal.getId());
+        if (recipients.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put(ANIMAL, animal);
+        variables.put(SIGHTINGS, sightings);
+        variables.put(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
+        Map<Locale, String> contents = mailTemplateService.render(TEMPLATE, recipients.keySet(), variables);
+        int batchSize = jHipsterProperties.getNotification().getBatchSize();
+        int sent = 0;
+        for (Map.Entry<Locale, List<String>> entry : recipients.entrySet()) {
+            String subject = mailTemplateService.getSubject(SUBJECT, entry.getKey());
+            String content = contents.get(entry.getKey());
+            List<String> emails = entry.getValue();
+            for (int from = 0; from < emails.size(); from += batchSize) {
+                notificationOutboxService.enqueue(emails.subList(from, Math.min(from + batchSize, emails.size())),
+                    subject, content, true);
+            }
+            sent += emails.size();
+        }
+        log.debug("Queued notifications to {} subscriber(s) of animal {}", sent, animal.getId());
+        return sent;
+    }
+
+    private Map<Locale, List<String>> findRecipientsInIndex(Long animalId) {
+        Map<Locale, List<String>> recipients = new LinkedHashMap<>();
+        SubscriptionIndex.Subscribers subscribers = subscriptionIndex.get(animalId);
+        for (int i = 0; i < subscribers.size(); i++) {
+            recipients.computeIfAbsent(MailTemplateService.getLocale(subscribers.getLangKey(i)), key -> new ArrayList<>())
+                .add(subscribers.getEmail(i));
+        }
+        return recipients;
+    }
+
+    private Map<Locale, List<String>> findRecipientsInDatabase(Long animalId) {
+        Map<Locale, List<String>> recipients = new LinkedHashMap<>();
+        Pageable pageable = new PageRequest(0, jHipsterProperties.getNotification().getBatchSize());
+        Slice<Object[]> rows;
+        do {
+            rows = subscriptionRepository.findSubscribersByAnimalId(animalId, pageable);
+            for (Object[] row : rows) {
+                recipients.computeIfAbsent(MailTemplateService.getLocale((String) row[1]), key -> new ArrayList<>())
+                    .add((String) row[0]);
+            }
+            pageable = rows.nextPageable();
+        } while (rows.hasNext());
+        return recipients;
+    }
+}
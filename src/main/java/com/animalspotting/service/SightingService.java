@@ -2,46 +2,143 @@ package com.animalspotting.service;
 
 import com.animalspotting.domain.Animal;
 import com.animalspotting.domain.Sighting;
-import com.animalspotting.domain.Subscription;
+import com.animalspotting.domain.User;
+import com.animalspotting.domain.util.GeoHash;
 import com.animalspotting.repository.SightingRepository;
-import com.animalspotting.repository.SubscriptionRepository;
+import com.animalspotting.service.dto.SightingDTO;
+import com.animalspotting.service.event.SightingCreatedEvent;
+import com.animalspotting.service.event.SightingDeletedEvent;
+import com.animalspotting.service.event.SightingUpdatedEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class SightingService {
 
+    /**
+     * Maximum number of geohash cells, hence of index range scans, used to cover a bounding box.
+     */
+    private static final int MAX_COVERING_CELLS = 32;
+
+    private static final double KM_PER_DEGREE = 111.195;
+
+    /**
+     * Number of rows fetched at a time by exports, on databases whose driver honours the fetch size.
+     */
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final String[] EXPORT_COLUMNS =
+        {"id", "date", "latitude", "longitude", "count", "animalId", "animalName"};
+
+    /**
+     * Formats of the sighting exports.
+     */
+    public enum ExportFormat {
+        /** One JSON object per line */
+        NDJSON,
+        /** Comma separated values, with a header line */
+        CSV
+    }
+
     @Inject
     private SightingRepository sightingRepository;
 
     @Inject
-    private SubscriptionRepository subscriptionRepository;
+    private ApplicationEventPublisher applicationEventPublisher;
 
     @Inject
-    private MailService mailService;
+    private EntityManager entityManager;
+
+    @Inject
+    private ObjectMapper objectMapper;
 
     private final Logger log = LoggerFactory.getLogger(SightingService.class);
 
+    /**
+     * Save a sighting.
+     * <p>
+     * Subscribers are not notified here: a {@link SightingCreatedEvent} is published for new sightings, and
+     * {@link SightingNotificationService} records their ids in the same transaction, for the outbox dispatcher to
+     * notify the subscribers. Updates
+     * publish a {@link SightingUpdatedEvent} with the previous state, used by {@link SightingStatsService}.
+     * </p>
+     *
+     * @param sighting the sighting to save
+     * @return the persisted sighting
+     */
     public Sighting save(Sighting sighting) {
-        Animal animal = sighting.getAnimal();
-
-        List<Subscription> subscriptions = subscriptionRepository.findByAnimal(animal);
-
-        for (Subscription subscription : subscriptions) {
-            log.info("");
-            log.info(subscription.getUser().getEmail());
-            mailService.sendEmail(subscription.getUser().getEmail(), "hello", "bla blah... a " + subscription.getAnimal().getName() + " was sighted ", false, false);
+        Sighting current = sighting.getId() != null ? sightingRepository.findOne(sighting.getId()) : null;
+        Sighting previous = current != null ? copy(current) : null;
+        Sighting result = sightingRepository.save(sighting);
+        if (previous == null) {
+            log.debug("Publishing creation of Sighting : {}", result);
+            applicationEventPublisher.publishEvent(new SightingCreatedEvent(result));
+        } else {
+            applicationEventPublisher.publishEvent(new SightingUpdatedEvent(previous, result));
         }
+        return result;
+    }
 
-        return sightingRepository.save(sighting);
+    /**
+     * Save new sightings in JDBC batches.
+     * <p>
+     * Subscribers are notified once per animal for the whole list, after the transaction has committed.
+     * </p>
+     *
+     * @param sightings the new sightings to save
+     * @return the persisted sightings
+     */
+    public List<Sighting> saveAll(List<Sighting> sightings) {
+        List<Sighting> result = sightingRepository.save(sightings);
+        sightingRepository.flush();
+        log.debug("Publishing creation of {} Sightings", result.size());
+        result.stream()
+            .collect(Collectors.groupingBy(sighting -> sighting.getAnimal().getId()))
+            .forEach((animalId, animalSightings) ->
+                applicationEventPublisher.publishEvent(new SightingCreatedEvent(animalId, animalSightings)));
+        return result;
     }
 
     public Sighting findOne(Long id) {
@@ -49,10 +146,258 @@ public class SightingService {
     }
 
     public void delete(Long id) {
+        Sighting sighting = sightingRepository.findOne(id);
         sightingRepository.delete(id);
+        if (sighting != null) {
+            applicationEventPublisher.publishEvent(new SightingDeletedEvent(sighting));
+        }
+    }
+
+    /**
+     * Get a page of sightings, with the name of their animal and the login of their user.
+     * <p>
+     * The page is read with a single query joining the animals and users, plus the count query.
+     * </p>
+     *
+     * @param pageable the pagination information
+     * @return the page of sightings
+     */
+    @Transactional(readOnly = true)
+    public Page<SightingDTO> findAll(Pageable pageable) {
+        return sightingRepository.findAllDTOs(pageable);
+    }
+
+    /**
+     * Get the sightings following a given id, ordered by id, without counting them.
+     * <p>
+     * Like {@link #findAll(Pageable)}, the sightings are read with a single query joining the animals and users.
+     * </p>
+     *
+     * @param after the id after which the sightings start, 0 for the first page
+     * @param size the maximum number of sightings
+     * @return the slice of sightings
+     */
+    @Transactional(readOnly = true)
+    public Slice<SightingDTO> findAllAfter(Long after, int size) {
+        return sightingRepository.findDTOsByIdGreaterThan(after, new PageRequest(0, size, Sort.Direction.ASC, "id"));
+    }
+
+    @Transactional(readOnly = true)
+    public long count() {
+        return sightingRepository.count();
+    }
+
+    /**
+     * Get the sightings inside a bounding box.
+     *
+     * @param minLat the southern latitude of the box
+     * @param minLon the western longitude of the box
+     * @param maxLat the northern latitude of the box
+     * @param maxLon the eastern longitude of the box
+     * @param pageable the pagination information
+     * @return the page of sightings inside the box
+     */
+    @Transactional(readOnly = true)
+    public Page<SightingDTO> findAllWithin(double minLat, double minLon, double maxLat, double maxLon, Pageable pageable) {
+        return findDTOs(within(minLat, minLon, maxLat, maxLon), pageable);
+    }
+
+    /**
+     * Get the sightings less than a given distance away from a position.
+     * <p>
+     * Distances are computed with an equirectangular projection centered on the position, which is accurate
+     * for the radiuses of a map view. Circles crossing the antimeridian include the sightings on both sides.
+     * </p>
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @param radiusKm the maximum distance, in kilometers
+     * @param pageable the pagination information
+     * @return the page of sightings near the position
+     */
+    @Transactional(readOnly = true)
+    public Page<SightingDTO> findAllNear(double latitude, double longitude, double radiusKm, Pageable pageable) {
+        double radius = radiusKm / KM_PER_DEGREE;
+        double lonScale = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        double minLat = Math.max(latitude - radius, -90);
+        double maxLat = Math.min(latitude + radius, 90);
+        // The part of the circle beyond the antimeridian is searched in a box on the other side, with the
+        // longitude of the position shifted by 360 degrees, so that the distance is the short way round
+        List<Specification<Sighting>> boxes = new ArrayList<>();
+        for (double shift : new double[]{-360, 0, 360}) {
+            double center = longitude + shift;
+            double minLon = Math.max(center - radius / lonScale, -180);
+            double maxLon = Math.min(center + radius / lonScale, 180);
+            if (minLon > maxLon) {
+                continue;
+            }
+            Specification<Sighting> within = within(minLat, minLon, maxLat, maxLon);
+            boxes.add((root, query, cb) -> {
+                Expression<Float> dLat = cb.diff(root.get("latitude"), (float) latitude);
+                Expression<Float> dLon = cb.prod(cb.diff(root.get("longitude"), (float) center), (float) lonScale);
+                return cb.and(within.toPredicate(root, query, cb),
+                    cb.le(cb.sum(cb.prod(dLat, dLat), cb.prod(dLon, dLon)), (float) (radius * radius)));
+            });
+        }
+        return findDTOs((root, query, cb) -> cb.or(boxes.stream()
+            .map(box -> box.toPredicate(root, query, cb))
+            .toArray(Predicate[]::new)), pageable);
+    }
+
+    /**
+     * Export the sightings matching optional filters, ordered by id.
+     * <p>
+     * Rows are read through a forward-only cursor as scalar values, so no entity is loaded, and each row is
+     * written as soon as it is read: the memory used does not depend on the number of exported sightings.
+     * On MySQL the driver only streams rows with a fetch size of {@link Integer#MIN_VALUE}.
+     * </p>
+     *
+     * @param format the format of the export
+     * @param animalId the id of the animal of the sightings, or null for all animals
+     * @param fromDate the first date of the sightings, or null
+     * @param toDate the last date of the sightings, or null
+     * @param bbox the bounding box of the sightings as "minLon,minLat,maxLon,maxLat", or null
+     * @param out the stream the export is written to
+     * @return the number of exported sightings
+     * @throws IOException if the export could not be written
+     */
+    @Transactional(readOnly = true)
+    public long export(ExportFormat format, Long animalId, LocalDate fromDate, LocalDate toDate, List<Double> bbox,
+                       OutputStream out) throws IOException {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Sighting> root = query.from(Sighting.class);
+        Join<Sighting, Animal> animal = root.join("animal");
+        List<Predicate> predicates = new ArrayList<>();
+        if (animalId != null) {
+            predicates.add(cb.equal(animal.get("id"), animalId));
+        }
+        if (fromDate != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("date"), fromDate));
+        }
+        if (toDate != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("date"), toDate));
+        }
+        if (bbox != null) {
+            predicates.add(within(bbox.get(1), bbox.get(0), bbox.get(3), bbox.get(2)).toPredicate(root, query, cb));
+        }
+        query.multiselect(root.get("id"), root.get("date"), root.get("latitude"), root.get("longitude"),
+            root.get("count"), animal.get("id"), animal.get("name"))
+            .where(predicates.toArray(new Predicate[predicates.size()]))
+            .orderBy(cb.asc(root.get("id")));
+
+        Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getDialect();
+        long exported = 0;
+        ScrollableResults rows = entityManager.createQuery(query).unwrap(org.hibernate.Query.class)
+            .setReadOnly(true)
+            .setFetchSize(dialect instanceof MySQLDialect ? Integer.MIN_VALUE : EXPORT_FETCH_SIZE)
+            .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            if (format == ExportFormat.NDJSON) {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+                generator.setRootValueSeparator(null);
+                while (rows.next()) {
+                    // Hibernate renders a multiselect as a single array column
+                    Object[] row = (Object[]) rows.get(0);
+                    generator.writeStartObject();
+                    for (int i = 0; i < EXPORT_COLUMNS.length; i++) {
+                        generator.writeFieldName(EXPORT_COLUMNS[i]);
+                        generator.writeObject(row[i] instanceof LocalDate ? row[i].toString() : row[i]);
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    exported++;
+                }
+                generator.flush();
+            } else {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                writer.write(String.join(",", EXPORT_COLUMNS));
+                writer.write('\n');
+                while (rows.next()) {
+                    // Hibernate renders a multiselect as a single array column
+                    Object[] row = (Object[]) rows.get(0);
+                    for (int i = 0; i < EXPORT_COLUMNS.length; i++) {
+                        if (i > 0) {
+                            writer.write(',');
+                        }
+                        writer.write(toCsv(row[i]));
+                    }
+                    writer.write('\n');
+                    exported++;
+                }
+                writer.flush();
+            }
+        } finally {
+            rows.close();
+        }
+        log.debug("Exported {} sighting(s) as {}", exported, format);
+        return exported;
+    }
+
+    private static String toCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    private static Sighting copy(Sighting sighting) {
+        Sighting copy = new Sighting()
+            .date(sighting.getDate())
+            .latitude(sighting.getLatitude())
+            .longitude(sighting.getLongitude())
+            .count(sighting.getCount())
+            .user(sighting.getUser())
+            .animal(sighting.getAnimal());
+        copy.setId(sighting.getId());
+        return copy;
+    }
+
+    /**
+     * Get a page of the sightings matching a specification, built by a single query joining the animals and
+     * users, plus the count query.
+     */
+    private Page<SightingDTO> findDTOs(Specification<Sighting> specification, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Sighting> countRoot = countQuery.from(Sighting.class);
+        countQuery.select(cb.count(countRoot)).where(specification.toPredicate(countRoot, countQuery, cb));
+        long total = entityManager.createQuery(countQuery).getSingleResult();
+        if (total <= pageable.getOffset()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, total);
+        }
+
+        CriteriaQuery<SightingDTO> query = cb.createQuery(SightingDTO.class);
+        Root<Sighting> root = query.from(Sighting.class);
+        Join<Sighting, Animal> animal = root.join("animal");
+        Join<Sighting, User> user = root.join("user");
+        query.select(cb.construct(SightingDTO.class, root.get("id"), root.get("date"), root.get("longitude"),
+            root.get("latitude"), root.get("count"), animal.get("id"), animal.get("name"), user.get("login")))
+            .where(specification.toPredicate(root, query, cb));
+        if (pageable.getSort() != null) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+        TypedQuery<SightingDTO> typedQuery = entityManager.createQuery(query)
+            .setFirstResult(pageable.getOffset())
+            .setMaxResults(pageable.getPageSize());
+        return new PageImpl<>(typedQuery.getResultList(), pageable, total);
     }
 
-    public Page<Sighting> findAll(Pageable pageable) {
-        return sightingRepository.findAll(pageable);
+    private static Specification<Sighting> within(double minLat, double minLon, double maxLat, double maxLon) {
+        Set<String> prefixes = GeoHash.coveringPrefixes(minLat, minLon, maxLat, maxLon, MAX_COVERING_CELLS);
+        return (root, query, cb) -> {
+            Path<String> geohash = root.get("geohash");
+            Predicate[] cells = prefixes.stream()
+                .map(prefix -> cb.like(geohash, prefix + "%"))
+                .toArray(Predicate[]::new);
+            return cb.and(
+                cb.or(cells),
+                cb.between(root.get("latitude"), (float) minLat, (float) maxLat),
+                cb.between(root.get("longitude"), (float) minLon, (float) maxLon));
+        };
     }
 }
@@ -0,0 +1,419 @@
+package com.animalspotting.service;
+
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.domain.Sighting;
+import com.animalspotting.domain.SightingStats;
+import com.animalspotting.domain.SightingStats.BucketType;
+import com.animalspotting.domain.util.GeoHash;
+import com.animalspotting.repository.SightingRepository;
+import com.animalspotting.repository.SightingStatsRepository;
+import com.animalspotting.service.dto.SightingStatsDTO;
+import com.animalspotting.service.event.SightingCreatedEvent;
+import com.animalspotting.service.event.SightingDeletedEvent;
+import com.animalspotting.service.event.SightingUpdatedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.AsyncResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service maintaining the number of sightings of each animal per day and per geohash cell.
+ * <p>
+ * Committed creations, updates and deletions of sightings are added to in-memory counters, which are striped
+ * so that concurrent writers do not contend on the same bucket. The counters are added to the
+ * {@code sighting_stats} table every {@code jhipster.stats.checkpointDelayMs} ms and when the application
+ * stops, and the statistics read the table plus the counters not written yet, so that their cost depends on
+ * the number of buckets and not on the number of sightings.
+ * </p>
+ * <p>
+ * The table can be rebuilt from the sightings, one animal per task on a pool of
+ * {@code jhipster.stats.rebuildParallelism} threads. This is done when the application starts with an empty
+ * table, and is needed after changing the geohash precision. A rebuild takes the {@code rebuildSightingStats}
+ * job lock, so that a single node of a cluster rebuilds the table. Sightings changed while a rebuild runs may
+ * be counted twice until the next rebuild.
+ * </p>
+ * <p>
+ * A rebuild only drops the counters pending on its own node. On a cluster, the sightings changed on the other
+ * nodes since their last checkpoint are both counted by the rebuild and added by the next checkpoint of their
+ * node, so they are counted twice until the next rebuild; rebuilding when the sightings are not changed, or
+ * with a single node running, avoids it.
+ * </p>
+ */
+@Service
+public class SightingStatsService {
+
+    private static final String FIRST_DAY = "0000-01-01";
+
+    private static final String LAST_DAY = "9999-12-31";
+
+    private static final String REBUILD_LOCK = "rebuildSightingStats";
+
+    private final Logger log = LoggerFactory.getLogger(SightingStatsService.class);
+
+    /**
+     * Guards the swap of the pending counters: updates take the read lock, the checkpoint the write lock.
+     */
+    private final ReadWriteLock pendingLock = new ReentrantReadWriteLock();
+
+    /**
+     * Keeps the checkpoints and the rebuilds from running at the same time.
+     */
+    private final Lock checkpointLock = new ReentrantLock();
+
+    private volatile ConcurrentMap<Bucket, Counter> pending = new ConcurrentHashMap<>();
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private SightingRepository sightingRepository;
+
+    @Inject
+    private SightingStatsRepository sightingStatsRepository;
+
+    @Inject
+    private JobLockService jobLockService;
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private int precision;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        precision = Math.max(1, Math.min(GeoHash.MAX_PRECISION, jHipsterProperties.getStats().getGeohashPrecision()));
+    }
+
+    @TransactionalEventListener
+    public void onSightingCreated(SightingCreatedEvent event) {
+        for (Sighting sighting : event.getSightings()) {
+            add(sighting, 1);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onSightingUpdated(SightingUpdatedEvent event) {
+        add(event.getPrevious(), -1);
+        add(event.getSighting(), 1);
+    }
+
+    @TransactionalEventListener
+    public void onSightingDeleted(SightingDeletedEvent event) {
+        add(event.getSighting(), -1);
+    }
+
+    /**
+     * Get the number of sightings of an animal per day.
+     *
+     * @param animalId the id of the animal
+     * @param fromDate the first day, or null
+     * @param toDate the last day, or null
+     * @return the days with sightings, in chronological order
+     */
+    public List<SightingStatsDTO> findDays(Long animalId, LocalDate fromDate, LocalDate toDate) {
+        String from = fromDate != null ? fromDate.toString() : null;
+        String to = toDate != null ? toDate.toString() : null;
+        List<SightingStats> rows = from == null && to == null ?
+            sightingStatsRepository.findByAnimalIdAndBucketTypeOrderByBucket(animalId, BucketType.DAY) :
+            sightingStatsRepository.findByAnimalIdAndBucketTypeAndBucketBetweenOrderByBucket(animalId, BucketType.DAY,
+                from != null ? from : FIRST_DAY, to != null ? to : LAST_DAY);
+        return merge(animalId, BucketType.DAY, rows, from, to);
+    }
+
+    /**
+     * Get the number of sightings of an animal per geohash cell.
+     *
+     * @param animalId the id of the animal
+     * @return the cells with sightings, ordered by geohash
+     */
+    public List<SightingStatsDTO> findCells(Long animalId) {
+        List<SightingStats> rows =
+            sightingStatsRepository.findByAnimalIdAndBucketTypeOrderByBucket(animalId, BucketType.CELL);
+        return merge(animalId, BucketType.CELL, rows, null, null);
+    }
+
+    /**
+     * Add the pending counters to the sighting_stats table.
+     * <p>
+     * The counters are put back if the table cannot be updated, and written by the next checkpoint.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${jhipster.stats.checkpointDelayMs:10000}")
+    @PreDestroy
+    public void checkpoint() {
+        checkpointLock.lock();
+        try {
+            ConcurrentMap<Bucket, Counter> counters = swapPending();
+            if (counters.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.execute(status -> {
+                    counters.forEach(this::write);
+                    return null;
+                });
+                log.debug("Checkpointed {} sighting statistics bucket(s)", counters.size());
+            } catch (RuntimeException e) {
+                log.warn("Could not checkpoint the sighting statistics, will retry: {}", e.toString());
+                counters.forEach((bucket, counter) -> counter(bucket).add(counter));
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuild the sighting_stats table from the sightings, unless another node is rebuilding it.
+     *
+     * @return the number of buckets written, 0 if another node is rebuilding the table
+     */
+    @Async
+    public Future<Long> rebuild() {
+        return new AsyncResult<>(rebuild(false));
+    }
+
+    /**
+     * Rebuild the sighting_stats table when the application starts, if it is empty and there are sightings.
+     * <p>
+     * The table is checked again once the rebuild lock is taken, so that the nodes started at the same time do
+     * not rebuild it one after the other.
+     * </p>
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (needsRebuild()) {
+            rebuild(true);
+        }
+    }
+
+    private boolean needsRebuild() {
+        return sightingStatsRepository.count() == 0 && sightingRepository.count() > 0;
+    }
+
+    private long rebuild(boolean onlyIfEmpty) {
+        Optional<String> lock = jobLockService.tryLock(REBUILD_LOCK,
+            Duration.ofSeconds(jHipsterProperties.getStats().getRebuildLockSeconds()));
+        if (!lock.isPresent()) {
+            log.info("The sighting statistics are being rebuilt by another node");
+            return 0;
+        }
+        checkpointLock.lock();
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, jHipsterProperties.getStats().getRebuildParallelism()));
+        try {
+            if (onlyIfEmpty && !needsRebuild()) {
+                log.debug("The sighting statistics have been rebuilt by another node");
+                return 0;
+            }
+            swapPending();
+            List<Long> animalIds = entityManager
+                .createQuery("select distinct s.animal.id from Sighting s", Long.class)
+                .getResultList();
+            log.info("Rebuilding the sighting statistics of {} animal(s)", animalIds.size());
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (Long animalId : animalIds) {
+                tasks.add(() -> transactionTemplate.execute(status -> rebuild(animalId)));
+            }
+            long buckets = 0;
+            for (Future<Long> result : executor.invokeAll(tasks)) {
+                buckets += result.get();
+            }
+            log.info("Rebuilt {} sighting statistics bucket(s)", buckets);
+            return buckets;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding the sighting statistics", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not rebuild the sighting statistics", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            checkpointLock.unlock();
+            jobLockService.unlock(REBUILD_LOCK, lock.get());
+        }
+    }
+
+    private long rebuild(Long animalId) {
+        sightingStatsRepository.deleteByAnimalId(animalId);
+        List<Object[]> days = entityManager.createQuery(
+            "select s.date, count(s), sum(coalesce(s.count, 1)) from Sighting s " +
+                "where s.animal.id = :animalId and s.date is not null group by s.date", Object[].class)
+            .setParameter("animalId", animalId)
+            .getResultList();
+        // The precision is inlined as some databases do not group by an expression with parameters
+        String cell = "substring(s.geohash, 1, " + precision + ")";
+        List<Object[]> cells = entityManager.createQuery(
+            "select " + cell + ", count(s), sum(coalesce(s.count, 1)) from Sighting s " +
+                "where s.animal.id = :animalId and s.geohash is not null group by " + cell, Object[].class)
+            .setParameter("animalId", animalId)
+            .getResultList();
+        List<SightingStats> stats = new ArrayList<>(days.size() + cells.size());
+        for (Object[] row : days) {
+            stats.add(new SightingStats(animalId, BucketType.DAY, row[0].toString(),
+                ((Number) row[1]).longValue(), ((Number) row[2]).longValue()));
+        }
+        for (Object[] row : cells) {
+            stats.add(new SightingStats(animalId, BucketType.CELL, (String) row[0],
+                ((Number) row[1]).longValue(), ((Number) row[2]).longValue()));
+        }
+        sightingStatsRepository.save(stats);
+        return stats.size();
+    }
+
+    private void add(Sighting sighting, int sign) {
+        if (sighting == null || sighting.getAnimal() == null || sighting.getAnimal().getId() == null) {
+            return;
+        }
+        Long animalId = sighting.getAnimal().getId();
+        long individuals = sign * (long) (sighting.getCount() != null ? sighting.getCount() : 1);
+        pendingLock.readLock().lock();
+        try {
+            if (sighting.getDate() != null) {
+                counter(new Bucket(animalId, BucketType.DAY, sighting.getDate().toString())).add(sign, individuals);
+            }
+            if (sighting.getLatitude() != null && sighting.getLongitude() != null) {
+                String cell = GeoHash.encode(sighting.getLatitude(), sighting.getLongitude(), precision);
+                counter(new Bucket(animalId, BucketType.CELL, cell)).add(sign, individuals);
+            }
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+
+    private Counter counter(Bucket bucket) {
+        return pending.computeIfAbsent(bucket, key -> new Counter());
+    }
+
+    private ConcurrentMap<Bucket, Counter> swapPending() {
+        pendingLock.writeLock().lock();
+        try {
+            ConcurrentMap<Bucket, Counter> counters = pending;
+            pending = new ConcurrentHashMap<>();
+            return counters;
+        } finally {
+            pendingLock.writeLock().unlock();
+        }
+    }
+
+    private void write(Bucket bucket, Counter counter) {
+        long sightings = counter.sightings.sum();
+        long individuals = counter.individuals.sum();
+        if (sightings == 0 && individuals == 0) {
+            return;
+        }
+        if (sightingStatsRepository.increment(bucket.animalId, bucket.type, bucket.value, sightings, individuals) == 0) {
+            sightingStatsRepository.save(new SightingStats(bucket.animalId, bucket.type, bucket.value, sightings, individuals));
+        }
+    }
+
+    private List<SightingStatsDTO> merge(Long animalId, BucketType type, List<SightingStats> rows, String from, String to) {
+        Map<String, long[]> totals = new TreeMap<>();
+        for (SightingStats row : rows) {
+            totals.put(row.getBucket(), new long[]{row.getSightings(), row.getIndividuals()});
+        }
+        for (Map.Entry<Bucket, Counter> entry : pending.entrySet()) {
+            Bucket bucket = entry.getKey();
+            if (bucket.animalId.equals(animalId) && bucket.type == type &&
+                (from == null || bucket.value.compareTo(from) >= 0) && (to == null || bucket.value.compareTo(to) <= 0)) {
+                long[] total = totals.computeIfAbsent(bucket.value, key -> new long[2]);
+                total[0] += entry.getValue().sightings.sum();
+                total[1] += entry.getValue().individuals.sum();
+            }
+        }
+        List<SightingStatsDTO> result = new ArrayList<>(totals.size());
+        totals.forEach((bucket, total) -> {
+            if (total[0] > 0) {
+                result.add(new SightingStatsDTO(animalId, bucket, total[0], total[1]));
+            }
+        });
+        return result;
+    }
+
+    private static final class Bucket {
+
+        private final Long animalId;
+
+        private final BucketType type;
+
+        private final String value;
+
+        private Bucket(Long animalId, BucketType type, String value) {
+            this.animalId = animalId;
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Bucket bucket = (Bucket) o;
+            return animalId.equals(bucket.animalId) && type == bucket.type && value.equals(bucket.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(animalId, type, value);
+        }
+    }
+
+    private static final class Counter {
+
+        private final LongAdder sightings = new LongAdder();
+
+        private final LongAdder individuals = new LongAdder();
+
+        private void add(long sightings, long individuals) {
+            this.sightings.add(sightings);
+            this.individuals.add(individuals);
+        }
+
+        private void add(Counter counter) {
+            add(counter.sightings.sum(), counter.individuals.sum());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.animalspotting.service;
+
+import com.animalspotting.domain.Subscription;
+import com.animalspotting.domain.User;
+import com.animalspotting.repository.SubscriptionRepository;
+import com.animalspotting.repository.UserRepository;
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.inject.Inject;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory routing table from an animal to the e-mail addresses and languages of its subscribers.
+ * <p>
+ * Matching a sighting to its subscribers is a single map lookup, with no database access. The table is loaded
+ * when the application is ready, kept up to date by the subscription and user changes made through this
+ * node, and reloaded every {@value #RELOAD_DELAY_MS} ms to pick up the changes made on other nodes.
+ * </p>
+ * <p>
+ * The changes are applied once the current transaction commits, so a rollback leaves the table untouched. The
+ * changes applied while the table is being reloaded are recorded, and applied again to the reloaded table, as
+ * the rows they change may have been read before they were committed.
+ * </p>
+ */
+@Service
+public class SubscriptionIndex {
+
+    private static final long RELOAD_DELAY_MS = 10 * 60 * 1000;
+
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    private final Logger log = LoggerFactory.getLogger(SubscriptionIndex.class);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private LongObjectHashMap<Subscribers> subscribersByAnimal = new LongObjectHashMap<>();
+
+    private LongLongHashMap animalBySubscription = new LongLongHashMap();
+
+    private List<Runnable> changesDuringReload;
+
+    private volatile boolean loaded;
+
+    @Inject
+    private SubscriptionRepository subscriptionRepository;
+
+    @Inject
+    private UserRepository userRepository;
+
+    /**
+     * @return true once the table has been loaded from the database, false if lookups cannot be trusted yet
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Get the subscribers of an animal.
+     *
+     * @param animalId the id of the animal
+     * @return the subscribers of the animal, possibly none
+     */
+    public Subscribers get(long animalId) {
+        lock.readLock().lock();
+        try {
+            Subscribers subscribers = subscribersByAnimal.get(animalId);
+            return subscribers != null ? subscribers : Subscribers.EMPTY;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add or update a saved subscription, once the current transaction commits.
+     *
+     * @param subscription the saved subscription
+     */
+    public void put(Subscription subscription) {
+        User user = userRepository.findOne(subscription.getUser().getId());
+        if (user == null) {
+            return;
+        }
+        long subscriptionId = subscription.getId();
+        long animalId = subscription.getAnimal().getId();
+        long userId = user.getId();
+        String email = user.getEmail();
+        String langKey = user.getLangKey();
+        afterCommit(() -> {
+            removeLocked(subscriptionId);
+            add(subscribersByAnimal, animalBySubscription, subscriptionId, animalId, userId, email, langKey);
+        });
+    }
+
+    /**
+     * Remove a deleted subscription, once the current transaction commits.
+     *
+     * @param subscriptionId the id of the deleted subscription
+     */
+    public void remove(long subscriptionId) {
+        afterCommit(() -> removeLocked(subscriptionId));
+    }
+
+    /**
+     * Update the e-mail address and language of a user in all its subscriptions, once the current transaction
+     * commits.
+     *
+     * @param userId the id of the user
+     * @param email the new e-mail address of the user
+     * @param langKey the new language of the user
+     */
+    public void updateUser(long userId, String email, String langKey) {
+        afterCommit(() -> {
+            for (ObjectCursor<Subscribers> cursor : subscribersByAnimal.values()) {
+                Subscribers updated = cursor.value;
+                for (int i = 0; i < updated.size(); i++) {
+                    if (updated.userIds[i] == userId && (!Objects.equals(updated.emails[i], email) ||
+                        !Objects.equals(updated.langKeys[i], langKey))) {
+                        updated = updated.withUser(i, email, langKey);
+                    }
+                }
+                if (updated != cursor.value) {
+                    subscribersByAnimal.put(updated.animalId, updated);
+                }
+            }
+        });
+    }
+
+    /**
+     * Load the whole table from the database, replacing the current one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelay = RELOAD_DELAY_MS, fixedDelay = RELOAD_DELAY_MS)
+    public synchronized void reload() {
+        log.debug("Loading the subscription index");
+        lock.writeLock().lock();
+        try {
+            changesDuringReload = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LongObjectHashMap<Subscribers> newSubscribersByAnimal = new LongObjectHashMap<>();
+        LongLongHashMap newAnimalBySubscription = new LongLongHashMap();
+        try {
+            Pageable pageable = new PageRequest(0, LOAD_BATCH_SIZE, Sort.Direction.ASC, "id");
+            Slice<Object[]> rows;
+            do {
+                rows = subscriptionRepository.findAllRoutes(pageable);
+                for (Object[] row : rows) {
+                    add(newSubscribersByAnimal, newAnimalBySubscription,
+                        (Long) row[0], (Long) row[1], (Long) row[2], (String) row[3], (String) row[4]);
+                }
+                pageable = rows.nextPageable();
+            } while (rows.hasNext());
+        } catch (RuntimeException e) {
+            log.warn("Could not load the subscription index, the database is used until it is loaded", e);
+            lock.writeLock().lock();
+            try {
+                changesDuringReload = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            subscribersByAnimal = newSubscribersByAnimal;
+            animalBySubscription = newAnimalBySubscription;
+            changesDuringReload.forEach(Runnable::run);
+            replayed = changesDuringReload.size();
+            changesDuringReload = null;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded {} subscription(s) of {} animal(s) in the subscription index, and replayed {} change(s)",
+            newAnimalBySubscription.size(), newSubscribersByAnimal.size(), replayed);
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(long subscriptionId) {
+        if (!animalBySubscription.containsKey(subscriptionId)) {
+            return;
+        }
+        long animalId = animalBySubscription.remove(subscriptionId);
+        Subscribers subscribers = subscribersByAnimal.get(animalId).without(subscriptionId);
+        if (subscribers.size() == 0) {
+            subscribersByAnimal.remove(animalId);
+        } else {
+            subscribersByAnimal.put(animalId, subscribers);
+        }
+    }
+
+    private static void add(LongObjectHashMap<Subscribers> subscribersByAnimal, LongLongHashMap animalBySubscription,
+                            long subscriptionId, long animalId, long userId, String email, String langKey) {
+        Subscribers subscribers = subscribersByAnimal.get(animalId);
+        if (subscribers == null) {
+            subscribers = new Subscribers(animalId, new long[0], new long[0], new String[0], new String[0]);
+        }
+        subscribersByAnimal.put(animalId, subscribers.with(subscriptionId, userId, email, langKey));
+        animalBySubscription.put(subscriptionId, animalId);
+    }
+
+    /**
+     * Immutable list of the subscribers of an animal, stored as parallel arrays.
+     */
+    public static final class Subscribers {
+
+        static final Subscribers EMPTY = new Subscribers(0, new long[0], new long[0], new String[0], new String[0]);
+
+        private final long animalId;
+
+        private final long[] subscriptionIds;
+
+        private final long[] userIds;
+
+        private final String[] emails;
+
+        private final String[] langKeys;
+
+        private Subscribers(long animalId, long[] subscriptionIds, long[] userIds, String[] emails, String[] langKeys) {
+            this.animalId = animalId;
+            this.subscriptionIds = subscriptionIds;
+            this.userIds = userIds;
+            this.emails = emails;
+            this.langKeys = langKeys;
+        }
+
+        public int size() {
+            return subscriptionIds.length;
+        }
+
+        public long getUserId(int index) {
+            return userIds[index];
+        }
+
+        public String getEmail(int index) {
+            return emails[index];
+        }
+
+        public String getLangKey(int index) {
+            return langKeys[index];
+        }
+
+        /**
+         * @return a read-only view of the e-mail addresses of the subscribers
+         */
+        public List<String> getEmails() {
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return emails[index];
+                }
+
+                @Override
+                public int size() {
+                    return emails.length;
+                }
+            };
+        }
+
+        private Subscribers with(long subscriptionId, long userId, String email, String langKey) {
+            int size = size();
+            long[] newSubscriptionIds = Arrays.copyOf(subscriptionIds, size + 1);
+            long[] newUserIds = Arrays.copyOf(userIds, size + 1);
+            String[] newEmails = Arrays.copyOf(emails, size + 1);
+            String[] newLangKeys = Arrays.copyOf(langKeys, size + 1);
+            newSubscriptionIds[size] = subscriptionId;
+            newUserIds[size] = userId;
+            newEmails[size] = email;
+            newLangKeys[size] = langKey;
+            return new Subscribers(animalId, newSubscriptionIds, newUserIds, newEmails, newLangKeys);
+        }
+
+        private Subscribers without(long subscriptionId) {
+            int size = size();
+            for (int i = 0; i < size; i++) {
+                if (subscriptionIds[i] == subscriptionId) {
+                    long[] newSubscriptionIds = new long[size - 1];
+                    long[] newUserIds = new long[size - 1];
+                    String[] newEmails = new String[size - 1];
+                    String[] newLangKeys = new String[size - 1];
+                    System.arraycopy(subscriptionIds, 0, newSubscriptionIds, 0, i);
+                    System.arraycopy(subscriptionIds, i + 1, newSubscriptionIds, i, size - i - 1);
+                    System.arraycopy(userIds, 0, newUserIds, 0, i);
+                    System.arraycopy(userIds, i + 1, newUserIds, i, size - i - 1);
+                    System.arraycopy(emails, 0, newEmails, 0, i);
+                    System.arraycopy(emails, i + 1, newEmails, i, size - i - 1);
+                    System.arraycopy(langKeys, 0, newLangKeys, 0, i);
+                    System.arraycopy(langKeys, i + 1, newLangKeys, i, size - i - 1);
+                    return new Subscribers(animalId, newSubscriptionIds, newUserIds, newEmails, newLangKeys);
+                }
+            }
+            return this;
+        }
+
+        private Subscribers withUser(int index, String email, String langKey) {
+            String[] newEmails = emails.clone();
+            String[] newLangKeys = langKeys.clone();
+            newEmails[index] = email;
+            newLangKeys[index] = langKey;
+            return new Subscribers(animalId, subscriptionIds, userIds, newEmails, newLangKeys);
+        }
+    }
+}
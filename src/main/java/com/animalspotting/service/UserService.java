@@ -1,22 +1,34 @@
 package com.animalspotting.service;
 
+import com.animalspotting.config.JHipsterProperties;
 import com.animalspotting.domain.Authority;
 import com.animalspotting.domain.User;
 import com.animalspotting.repository.AuthorityRepository;
 import com.animalspotting.repository.UserRepository;
 import com.animalspotting.security.AuthoritiesConstants;
 import com.animalspotting.security.SecurityUtils;
+import com.animalspotting.security.UserDetailsCache;
 import com.animalspotting.service.util.RandomUtil;
 import com.animalspotting.web.rest.vm.ManagedUserVM;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.util.*;
 
@@ -41,6 +53,37 @@ public class UserService {
     @Inject
     private AuthorityRepository authorityRepository;
 
+    @Inject
+    private SubscriptionIndex subscriptionIndex;
+
+    @Inject
+    private UserDetailsCache userDetailsCache;
+
+    @Inject
+    private JobLockService jobLockService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Meter notActivatedDeleted;
+
+    private Timer notActivatedChunks;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        notActivatedDeleted = metricRegistry.meter("users.not-activated.deleted");
+        notActivatedChunks = metricRegistry.timer("users.not-activated.chunks");
+    }
+
     public Optional<User> activateRegistration(String key) {
         log.debug("Activating user for activation key {}", key);
         return userRepository.findOneByActivationKey(key)
@@ -49,6 +92,7 @@ public class UserService {
                 user.setActivated(true);
                 user.setActivationKey(null);
                 userRepository.save(user);
+                userDetailsCache.evict(user.getLogin());
                 log.debug("Activated user: {}", user);
                 return user;
             });
@@ -67,6 +111,7 @@ public class UserService {
                 user.setResetKey(null);
                 user.setResetDate(null);
                 userRepository.save(user);
+                userDetailsCache.evict(user.getLogin());
                 return user;
            });
     }
@@ -142,6 +187,8 @@ public class UserService {
             u.setEmail(email);
             u.setLangKey(langKey);
             userRepository.save(u);
+            subscriptionIndex.updateUser(u.getId(), email, langKey);
+            userDetailsCache.evict(u.getLogin());
             log.debug("Changed Information for User: {}", u);
         });
     }
@@ -152,10 +199,13 @@ public class UserService {
         userRepository
             .findOneById(id)
             .ifPresent(u -> {
+                userDetailsCache.evict(u.getLogin());
+                userDetailsCache.evict(login);
                 u.setLogin(login);
                 u.setFirstName(firstName);
                 u.setLastName(lastName);
                 u.setEmail(email);
+                subscriptionIndex.updateUser(u.getId(), email, langKey);
                 u.setActivated(activated);
                 u.setLangKey(langKey);
                 Set<Authority> managedAuthorities = u.getAuthorities();
@@ -172,6 +222,7 @@ public class UserService {
             jdbcTokenStore.removeAccessToken(token));
         userRepository.findOneByLogin(login).ifPresent(u -> {
             userRepository.delete(u);
+            userDetailsCache.evict(u.getLogin());
             log.debug("Deleted User: {}", u);
         });
     }
@@ -181,10 +232,31 @@ public class UserService {
             String encryptedPassword = passwordEncoder.encode(password);
             u.setPassword(encryptedPassword);
             userRepository.save(u);
+            userDetailsCache.evict(u.getLogin());
             log.debug("Changed password for User: {}", u);
         });
     }
 
+    /**
+     * Replace the password hash of a user by a hash of the configured cost, if its hash has not changed since the
+     * password was checked.
+     *
+     * @param login the login of the user
+     * @param encodedPassword the hash the password was checked against
+     * @param upgradedPassword the new hash of the password
+     */
+    @Async
+    public void upgradePassword(String login, String encodedPassword, String upgradedPassword) {
+        userRepository.findOneByLogin(login)
+            .filter(u -> encodedPassword.equals(u.getPassword()))
+            .ifPresent(u -> {
+                u.setPassword(upgradedPassword);
+                userRepository.save(u);
+                userDetailsCache.evict(login);
+                log.debug("Upgraded the password hash of User: {}", u);
+            });
+    }
+
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthoritiesByLogin(String login) {
         return userRepository.findOneByLogin(login).map(u -> {
@@ -215,16 +287,57 @@ public class UserService {
     /**
      * Not activated users should be automatically deleted after 3 days.
      * <p>
-     * This is scheduled to get fired everyday, at 01:00 (am).
+     * This is scheduled to get fired everyday, at 01:00 (am), on the node holding the job lock. The users are
+     * deleted by chunks, each with bulk deletes of their tokens, approvals and authorities then of the users
+     * themselves in its own transaction, so a backlog of bot registrations is never loaded nor locked at once.
      * </p>
+     *
+     * @return the number of users deleted
      */
     @Scheduled(cron = "0 0 1 * * ?")
-    public void removeNotActivatedUsers() {
-        ZonedDateTime now = ZonedDateTime.now();
-        List<User> users = userRepository.findAllByActivatedIsFalseAndCreatedDateBefore(now.minusDays(3));
-        for (User user : users) {
-            log.debug("Deleting not activated user {}", user.getLogin());
-            userRepository.delete(user);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int removeNotActivatedUsers() {
+        JHipsterProperties.Users.Cleanup cleanup = jHipsterProperties.getUsers().getCleanup();
+        Optional<String> lock = jobLockService.tryLock("removeNotActivatedUsers",
+            Duration.ofSeconds(cleanup.getLockSeconds()));
+        if (!lock.isPresent()) {
+            log.debug("Not activated users are being deleted by another node");
+            return 0;
+        }
+        try {
+            ZonedDateTime before = ZonedDateTime.now().minusDays(3);
+            int deleted = 0;
+            int deletedChunk;
+            do {
+                Timer.Context context = notActivatedChunks.time();
+                try {
+                    deletedChunk = transactionTemplate.execute(status ->
+                        deleteNotActivatedUsers(before, cleanup.getChunkSize()));
+                } finally {
+                    context.stop();
+                }
+                notActivatedDeleted.mark(deletedChunk);
+                deleted += deletedChunk;
+                log.debug("Deleted {} not activated user(s), {} so far", deletedChunk, deleted);
+            } while (deletedChunk == cleanup.getChunkSize());
+            log.info("Deleted {} not activated user(s) created before {}", deleted, before);
+            return deleted;
+        } finally {
+            jobLockService.unlock("removeNotActivatedUsers", lock.get());
+        }
+    }
+
+    private int deleteNotActivatedUsers(ZonedDateTime before, int chunkSize) {
+        List<Long> ids = userRepository.findNotActivatedIdsByCreatedDateBefore(before, new PageRequest(0, chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
         }
+        userRepository.findLoginsByIdIn(ids).forEach(userDetailsCache::evict);
+        userRepository.deleteRefreshTokensByUserIdIn(ids);
+        userRepository.deleteAccessTokensByUserIdIn(ids);
+        userRepository.deleteClientTokensByUserIdIn(ids);
+        userRepository.deleteApprovalsByUserIdIn(ids);
+        userRepository.deleteAuthoritiesByUserIdIn(ids);
+        return userRepository.deleteByIdIn(ids);
     }
 }
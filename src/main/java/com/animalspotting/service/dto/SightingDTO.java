@@ -0,0 +1,89 @@
+package com.animalspotting.service.dto;
+
+import java.time.LocalDate;
+
+/**
+ * A DTO representing a sighting in a list, with the name of its animal and the login of its user.
+ * <p>
+ * It is built by the list queries directly from the selected columns, so that listing sightings does not load
+ * the users and animals they refer to.
+ * </p>
+ */
+public class SightingDTO {
+
+    private Long id;
+
+    private LocalDate date;
+
+    private Float longitude;
+
+    private Float latitude;
+
+    private Integer count;
+
+    private Long animalId;
+
+    private String animalName;
+
+    private String userLogin;
+
+    public SightingDTO() {
+    }
+
+    public SightingDTO(Long id, LocalDate date, Float longitude, Float latitude, Integer count,
+                       Long animalId, String animalName, String userLogin) {
+        this.id = id;
+        this.date = date;
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.count = count;
+        this.animalId = animalId;
+        this.animalName = animalName;
+        this.userLogin = userLogin;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Float getLongitude() {
+        return longitude;
+    }
+
+    public Float getLatitude() {
+        return latitude;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public Long getAnimalId() {
+        return animalId;
+    }
+
+    public String getAnimalName() {
+        return animalName;
+    }
+
+    public String getUserLogin() {
+        return userLogin;
+    }
+
+    @Override
+    public String toString() {
+        return "SightingDTO{" +
+            "id=" + id +
+            ", date=" + date +
+            ", longitude=" + longitude +
+            ", latitude=" + latitude +
+            ", count=" + count +
+            ", animalId=" + animalId +
+            ", userLogin='" + userLogin + '\'' +
+            "}";
+    }
+}
@@ -0,0 +1,51 @@
+package com.animalspotting.service.dto;
+
+/**
+ * A DTO representing the number of sightings of an animal in a day or a geohash cell.
+ */
+public class SightingStatsDTO {
+
+    private Long animalId;
+
+    private String bucket;
+
+    private long sightings;
+
+    private long individuals;
+
+    public SightingStatsDTO() {
+    }
+
+    public SightingStatsDTO(Long animalId, String bucket, long sightings, long individuals) {
+        this.animalId = animalId;
+        this.bucket = bucket;
+        this.sightings = sightings;
+        this.individuals = individuals;
+    }
+
+    public Long getAnimalId() {
+        return animalId;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public long getSightings() {
+        return sightings;
+    }
+
+    public long getIndividuals() {
+        return individuals;
+    }
+
+    @Override
+    public String toString() {
+        return "SightingStatsDTO{" +
+            "animalId=" + animalId +
+            ", bucket='" + bucket + '\'' +
+            ", sightings=" + sightings +
+            ", individuals=" + individuals +
+            "}";
+    }
+}
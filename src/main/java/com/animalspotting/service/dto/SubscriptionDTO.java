@@ -0,0 +1,62 @@
+package com.animalspotting.service.dto;
+
+/**
+ * A DTO representing a subscription in a list, with the name of its animal and the login of its user.
+ * <p>
+ * It is built by the list queries directly from the selected columns, so that listing subscriptions does not
+ * load the users and animals they refer to.
+ * </p>
+ */
+public class SubscriptionDTO {
+
+    private Long id;
+
+    private String description;
+
+    private Long animalId;
+
+    private String animalName;
+
+    private String userLogin;
+
+    public SubscriptionDTO() {
+    }
+
+    public SubscriptionDTO(Long id, String description, Long animalId, String animalName, String userLogin) {
+        this.id = id;
+        this.description = description;
+        this.animalId = animalId;
+        this.animalName = animalName;
+        this.userLogin = userLogin;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Long getAnimalId() {
+        return animalId;
+    }
+
+    public String getAnimalName() {
+        return animalName;
+    }
+
+    public String getUserLogin() {
+        return userLogin;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionDTO{" +
+            "id=" + id +
+            ", description='" + description + '\'' +
+            ", animalId=" + animalId +
+            ", userLogin='" + userLogin + '\'' +
+            "}";
+    }
+}
@@ -0,0 +1,50 @@
+package com.animalspotting.service.event;
+
+import com.animalspotting.domain.Sighting;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Published when new sightings of an animal have been saved.
+ * <p>
+ * A single event is published for all the sightings of the same animal saved in a transaction, so that
+ * subscribers are looked up once per animal. Listeners interested in the committed sightings should use
+ * {@link org.springframework.transaction.event.TransactionalEventListener}, so that they only run once the
+ * sightings are visible to other transactions.
+ * </p>
+ */
+public class SightingCreatedEvent {
+
+    private final Long animalId;
+
+    private final List<Sighting> sightings;
+
+    public SightingCreatedEvent(Long animalId, List<Sighting> sightings) {
+        this.animalId = animalId;
+        this.sightings = Collections.unmodifiableList(sightings);
+    }
+
+    public SightingCreatedEvent(Sighting sighting) {
+        this(sighting.getAnimal() != null ? sighting.getAnimal().getId() : null, Collections.singletonList(sighting));
+    }
+
+    /**
+     * @return the id of the animal, or null if the sightings have none
+     */
+    public Long getAnimalId() {
+        return animalId;
+    }
+
+    public List<Sighting> getSightings() {
+        return sightings;
+    }
+
+    @Override
+    public String toString() {
+        return "SightingCreatedEvent{" +
+            "animalId=" + animalId +
+            ", sightings=" + sightings.size() +
+            '}';
+    }
+}
@@ -0,0 +1,26 @@
+package com.animalspotting.service.event;
+
+import com.animalspotting.domain.Sighting;
+
+/**
+ * Published when a sighting has been deleted, with the state it had before its deletion.
+ */
+public class SightingDeletedEvent {
+
+    private final Sighting sighting;
+
+    public SightingDeletedEvent(Sighting sighting) {
+        this.sighting = sighting;
+    }
+
+    public Sighting getSighting() {
+        return sighting;
+    }
+
+    @Override
+    public String toString() {
+        return "SightingDeletedEvent{" +
+            "sighting=" + sighting.getId() +
+            '}';
+    }
+}
@@ -0,0 +1,36 @@
+package com.animalspotting.service.event;
+
+import com.animalspotting.domain.Sighting;
+
+/**
+ * Published when an existing sighting has been updated.
+ * <p>
+ * The previous state is a detached copy of the sighting as it was before the update.
+ * </p>
+ */
+public class SightingUpdatedEvent {
+
+    private final Sighting previous;
+
+    private final Sighting sighting;
+
+    public SightingUpdatedEvent(Sighting previous, Sighting sighting) {
+        this.previous = previous;
+        this.sighting = sighting;
+    }
+
+    public Sighting getPrevious() {
+        return previous;
+    }
+
+    public Sighting getSighting() {
+        return sighting;
+    }
+
+    @Override
+    public String toString() {
+        return "SightingUpdatedEvent{" +
+            "sighting=" + sighting.getId() +
+            '}';
+    }
+}
@@ -0,0 +1,227 @@
+package com.animalspotting.web.filter;
+
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.domain.util.JdbcStatistics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This filter records the latency and the size of the requests, per endpoint.
+ * <p>
+ * The endpoints are named after the pattern of the Spring MVC mapping that handled them, so that
+ * {@code /api/animals/1} and {@code /api/animals/2} share the {@code requests.GET./api/animals/{id}.200} timer,
+ * whose percentiles are published with the other Dropwizard metrics. The requests with a method which is not a
+ * standard HTTP method are recorded under the {@code OTHER} method, so that clients cannot create metrics at will.
+ * The requests slower than the threshold
+ * are logged, with the time they spent in the database, and so are the statements a request runs more times than
+ * the threshold, which usually come from an N+1 select.
+ * </p>
+ */
+public class RequestMetricsFilter implements Filter {
+
+    private static final String UNMATCHED_PATTERN = "unmatched";
+
+    private static final String OTHER_METHOD = "OTHER";
+
+    private final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+    private final MetricRegistry metricRegistry;
+
+    private final JHipsterProperties jHipsterProperties;
+
+    public RequestMetricsFilter(MetricRegistry metricRegistry, JHipsterProperties jHipsterProperties) {
+        this.metricRegistry = metricRegistry;
+        this.jHipsterProperties = jHipsterProperties;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Nothing to initialize
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to destroy
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        CountingResponseWrapper httpResponse = new CountingResponseWrapper((HttpServletResponse) response);
+        JdbcStatistics.current().reset();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, httpResponse);
+            failed = false;
+        } finally {
+            httpResponse.flushWriter();
+            JdbcStatistics jdbcStatistics = JdbcStatistics.current().snapshot();
+            if (!failed && httpRequest.isAsyncStarted()) {
+                httpRequest.getAsyncContext().addListener(new AsyncListener() {
+
+                    @Override
+                    public void onComplete(AsyncEvent event) throws IOException {
+                        httpResponse.flushWriter();
+                        record(httpRequest, httpResponse, httpResponse.getStatus(), start, jdbcStatistics);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) throws IOException {
+                        // The request is recorded when it completes
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) throws IOException {
+                        // The request is recorded when it completes
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) throws IOException {
+                        // The request is recorded when it completes
+                    }
+                });
+            } else {
+                record(httpRequest, httpResponse, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR :
+                    httpResponse.getStatus(), start, jdbcStatistics);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, CountingResponseWrapper response, int status, long start,
+                        JdbcStatistics jdbcStatistics) {
+        long duration = System.nanoTime() - start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = pattern != null ? pattern.toString() : UNMATCHED_PATTERN;
+        HttpMethod httpMethod = HttpMethod.resolve(request.getMethod());
+        String method = httpMethod != null ? httpMethod.name() : OTHER_METHOD;
+        long requestBytes = Math.max(request.getContentLengthLong(), 0);
+
+        metricRegistry.timer(MetricRegistry.name("requests", method, endpoint, String.valueOf(status)))
+            .update(duration, TimeUnit.NANOSECONDS);
+        metricRegistry.histogram(MetricRegistry.name("requests", method, endpoint, "request-bytes"))
+            .update(requestBytes);
+        metricRegistry.histogram(MetricRegistry.name("requests", method, endpoint, "response-bytes"))
+            .update(response.getByteCount());
+        metricRegistry.histogram(MetricRegistry.name("requests", method, endpoint, "statements"))
+            .update(jdbcStatistics.getStatements());
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(duration);
+        JHipsterProperties.Metrics.Requests properties = jHipsterProperties.getMetrics().getRequests();
+        if (durationMs > properties.getSlowThresholdMs()) {
+            log.warn("Slow request: method={} uri={} pattern={} status={} durationMs={} dbMs={} dbStatements={} " +
+                    "requestBytes={} responseBytes={}", request.getMethod(), request.getRequestURI(), endpoint, status,
+                durationMs, TimeUnit.NANOSECONDS.toMillis(jdbcStatistics.getNanos()), jdbcStatistics.getStatements(),
+                requestBytes, response.getByteCount());
+        }
+        if (properties.getRepeatedStatementThreshold() > 0) {
+            jdbcStatistics.getRepeatedStatements(properties.getRepeatedStatementThreshold()).forEach((sql, count) ->
+                log.warn("Repeated statement, possible N+1 select: method={} uri={} pattern={} count={} sql={}",
+                    request.getMethod(), request.getRequestURI(), endpoint, count, sql));
+        }
+    }
+
+    /**
+     * Response counting the bytes of its body.
+     */
+    private static class CountingResponseWrapper extends HttpServletResponseWrapper {
+
+        private CountingOutputStream outputStream;
+
+        private PrintWriter writer;
+
+        CountingResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            super.flushBuffer();
+        }
+
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        long getByteCount() {
+            return outputStream != null ? outputStream.count : 0;
+        }
+    }
+
+    private static class CountingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        private long count;
+
+        CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.animalspotting.web.rest;
 
+import com.animalspotting.domain.PersistentAuditEvent;
 import com.animalspotting.service.AuditEventService;
 
 import java.time.LocalDate;
@@ -7,6 +8,7 @@ import com.animalspotting.web.rest.util.PaginationUtil;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
@@ -42,10 +44,35 @@ public class AuditResource {
     @RequestMapping(method = RequestMethod.GET)
     public ResponseEntity<List<AuditEvent>> getAll(Pageable pageable) throws URISyntaxException {
         Page<AuditEvent> page = auditEventService.findAll(pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/audits");
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/management/jhipster/audits");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /audits?after=:id : get the AuditEvents following the "id" AuditEvent, ordered by id.
+     * <p>
+     * Keyset pagination: the depth of the page does not matter, and the events are not counted unless asked.
+     * The "next" link of the response points to the following page.
+     * </p>
+     *
+     * @param after the id after which the AuditEvents start, 0 for the first page
+     * @param size the maximum number of AuditEvents
+     * @param count whether to return the total number of AuditEvents in the X-Total-Count header
+     * @return the ResponseEntity with status 200 (OK) and the list of AuditEvents in body
+     */
+    @RequestMapping(method = RequestMethod.GET,
+        params = "after")
+    public ResponseEntity<List<AuditEvent>> getAllAfter(@RequestParam Long after,
+                                                        @RequestParam(defaultValue = "20") int size,
+                                                        @RequestParam(defaultValue = "false") boolean count) {
+        size = Math.max(1, Math.min(size, PaginationUtil.MAX_KEYSET_PAGE_SIZE));
+        Slice<PersistentAuditEvent> slice = auditEventService.findAllAfter(after, size);
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId, size,
+            count ? auditEventService.count() : null, "/management/jhipster/audits");
+        return new ResponseEntity<>(auditEventService.convert(slice.getContent()), headers, HttpStatus.OK);
+    }
+
     /**
      * GET  /audits : get a page of AuditEvents between the fromDate and toDate.
      *
@@ -64,7 +91,7 @@ public class AuditResource {
         Pageable pageable) throws URISyntaxException {
 
         Page<AuditEvent> page = auditEventService.findByDates(fromDate.atTime(0, 0), toDate.atTime(23, 59), pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/audits");
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/management/jhipster/audits");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
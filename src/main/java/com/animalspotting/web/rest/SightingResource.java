@@ -3,25 +3,49 @@ package com.animalspotting.web.rest;
 import com.animalspotting.service.SightingService;
 import com.codahale.metrics.annotation.Timed;
 import com.animalspotting.domain.Sighting;
+import com.animalspotting.service.dto.SightingDTO;
 
 import com.animalspotting.web.rest.util.HeaderUtil;
 import com.animalspotting.web.rest.util.PaginationUtil;
+import com.animalspotting.web.rest.vm.BulkResultVM;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing Sighting.
@@ -32,9 +56,21 @@ public class SightingResource {
 
     private final Logger log = LoggerFactory.getLogger(SightingResource.class);
 
+    private static final double MAX_RADIUS_KM = 1000;
+
+    private static final int BULK_BATCH_SIZE = 1000;
+
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     @Inject
     private SightingService sightingService;
 
+    @Inject
+    private Validator validator;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
     /**
      * POST  /sightings : Create a new sighting.
      *
@@ -57,6 +93,83 @@ public class SightingResource {
             .body(result);
     }
 
+    /**
+     * POST  /sightings/bulk : Create many new sightings.
+     * <p>
+     * The body is either a JSON array of sightings or newline delimited JSON, and is read as a stream. Valid
+     * sightings are saved in batches of {@value #BULK_BATCH_SIZE}, each in its own transaction; invalid ones are
+     * skipped and reported in the response. As the batches already saved stay saved, a body which is not
+     * well-formed JSON is reported as a rejected record, and the sightings following it are not read.
+     * </p>
+     *
+     * @param request the HTTP request holding the sightings to create
+     * @return the ResponseEntity with status 200 (OK) and with body the number of created sightings and the
+     * rejected ones
+     * @throws IOException if the request body cannot be read
+     */
+    @RequestMapping(value = "/sightings/bulk",
+        method = RequestMethod.POST,
+        consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE},
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<BulkResultVM> createSightings(HttpServletRequest request) throws IOException {
+        log.debug("REST request to save Sightings in bulk");
+        BulkResultVM result = new BulkResultVM();
+        List<Sighting> batch = new ArrayList<>(BULK_BATCH_SIZE);
+        List<String> batchObjectNames = new ArrayList<>(BULK_BATCH_SIZE);
+        ObjectReader reader = objectMapper.readerFor(Sighting.class);
+        int index = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            for (; token != null && token != JsonToken.END_ARRAY; index++, token = parser.nextToken()) {
+                JsonNode node = parser.readValueAsTree();
+                String objectName = "sighting[" + index + "]";
+                Sighting sighting;
+                try {
+                    sighting = reader.readValue(node);
+                } catch (JsonMappingException e) {
+                    result.addRejected(objectName, getField(e), "invalid");
+                    continue;
+                }
+                if (sighting == null) {
+                    result.addRejected(objectName, null, "invalid");
+                    continue;
+                }
+                if (sighting.getId() != null) {
+                    result.addRejected(objectName, "id", "idexists");
+                    continue;
+                }
+                Set<ConstraintViolation<Sighting>> violations = validator.validate(sighting);
+                if (!violations.isEmpty()) {
+                    violations.forEach(violation ->
+                        result.addRejected(objectName, violation.getPropertyPath().toString(), violation.getMessage()));
+                    continue;
+                }
+                if (sighting.getAnimal().getId() == null) {
+                    result.addRejected(objectName, "animal.id", "may not be null");
+                    continue;
+                }
+                batch.add(sighting);
+                batchObjectNames.add(objectName);
+                if (batch.size() == BULK_BATCH_SIZE) {
+                    saveBatch(batch, batchObjectNames, result);
+                }
+            }
+        } catch (JsonParseException e) {
+            log.debug("Invalid bulk request body", e);
+            result.addRejected("sighting[" + index + "]", null, "invalidjson");
+        }
+        if (!batch.isEmpty()) {
+            saveBatch(batch, batchObjectNames, result);
+        }
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createAlert("animalSpottingApp.sighting.bulkCreated", String.valueOf(result.getCreated())))
+            .body(result);
+    }
+
     /**
      * PUT  /sightings : Updates an existing sighting.
      *
@@ -92,14 +205,141 @@ public class SightingResource {
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<Sighting>> getAllSightings(Pageable pageable)
+    public ResponseEntity<List<SightingDTO>> getAllSightings(Pageable pageable)
         throws URISyntaxException {
         log.debug("REST request to get a page of Sightings");
-        Page<Sighting> page = sightingService.findAll(pageable);
+        Page<SightingDTO> page = sightingService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/sightings");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /sightings?after=:id : get the sightings following the "id" sighting, ordered by id.
+     * <p>
+     * Keyset pagination: the depth of the page does not matter, and the sightings are not counted unless asked.
+     * The "next" link of the response points to the following page.
+     * </p>
+     *
+     * @param after the id after which the sightings start, 0 for the first page
+     * @param size the maximum number of sightings
+     * @param count whether to return the total number of sightings in the X-Total-Count header
+     * @return the ResponseEntity with status 200 (OK) and the list of sightings in body
+     */
+    @RequestMapping(value = "/sightings",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SightingDTO>> getSightingsAfter(@RequestParam Long after,
+                                                            @RequestParam(defaultValue = "20") int size,
+                                                            @RequestParam(defaultValue = "false") boolean count) {
+        log.debug("REST request to get the Sightings after {}", after);
+        size = Math.max(1, Math.min(size, PaginationUtil.MAX_KEYSET_PAGE_SIZE));
+        Slice<SightingDTO> slice = sightingService.findAllAfter(after, size);
+        Long lastId = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1).getId() : null;
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(slice, lastId, size,
+            count ? sightingService.count() : null, "/api/sightings");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /sightings/within : get the sightings inside a bounding box.
+     *
+     * @param bbox the bounding box, as "minLon,minLat,maxLon,maxLat"
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of sightings in body,
+     * or with status 400 (Bad Request) if the bounding box is not valid
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/sightings/within",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SightingDTO>> getSightingsWithin(@RequestParam List<Double> bbox, Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to get a page of Sightings within {}", bbox);
+        if (!isValidBoundingBox(bbox)) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("sighting", "invalidbbox", "The bounding box must be minLon,minLat,maxLon,maxLat")).body(null);
+        }
+        Page<SightingDTO> page = sightingService.findAllWithin(bbox.get(1), bbox.get(0), bbox.get(3), bbox.get(2), pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page,
+            "/api/sightings/within?bbox=" + StringUtils.collectionToCommaDelimitedString(bbox));
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /sightings/near : get the sightings less than a given distance away from a position.
+     *
+     * @param lat the latitude of the position
+     * @param lon the longitude of the position
+     * @param radiusKm the maximum distance, in kilometers
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of sightings in body,
+     * or with status 400 (Bad Request) if the position or the radius is not valid
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/sightings/near",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<SightingDTO>> getSightingsNear(@RequestParam double lat, @RequestParam double lon,
+        @RequestParam double radiusKm, Pageable pageable) throws URISyntaxException {
+        log.debug("REST request to get a page of Sightings within {} km of {},{}", radiusKm, lat, lon);
+        if (!isValidLatitude(lat) || !isValidLongitude(lon) || radiusKm <= 0 || radiusKm > MAX_RADIUS_KM) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("sighting", "invalidradius", "The position or the radius is not valid")).body(null);
+        }
+        Page<SightingDTO> page = sightingService.findAllNear(lat, lon, radiusKm, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page,
+            "/api/sightings/near?lat=" + lat + "&lon=" + lon + "&radiusKm=" + radiusKm);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /sightings/export : export all the sightings, or the ones matching the given filters.
+     * <p>
+     * The sightings are streamed from the database to the response as they are read, ordered by id, so an export
+     * of the whole dataset does not use more memory than a small one.
+     * </p>
+     *
+     * @param format the format of the export, "ndjson" (one JSON object per line) or "csv"
+     * @param animalId the id of the animal of the sightings
+     * @param fromDate the first date of the sightings
+     * @param toDate the last date of the sightings
+     * @param bbox the bounding box of the sightings, as "minLon,minLat,maxLon,maxLat"
+     * @return the ResponseEntity with status 200 (OK) and the sightings in body,
+     * or with status 400 (Bad Request) if the format or the bounding box is not valid
+     */
+    @RequestMapping(value = "/sightings/export",
+        method = RequestMethod.GET)
+    @Timed
+    public ResponseEntity<StreamingResponseBody> exportSightings(
+        @RequestParam(defaultValue = "ndjson") String format,
+        @RequestParam(required = false) Long animalId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+        @RequestParam(required = false) List<Double> bbox) {
+        log.debug("REST request to export Sightings as {}", format);
+        SightingService.ExportFormat exportFormat;
+        MediaType mediaType;
+        if ("ndjson".equalsIgnoreCase(format)) {
+            exportFormat = SightingService.ExportFormat.NDJSON;
+            mediaType = MediaType.valueOf(NDJSON_VALUE);
+        } else if ("csv".equalsIgnoreCase(format)) {
+            exportFormat = SightingService.ExportFormat.CSV;
+            mediaType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+        } else {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("sighting", "invalidformat", "The export format must be ndjson or csv")).body(null);
+        }
+        if (bbox != null && !isValidBoundingBox(bbox)) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("sighting", "invalidbbox", "The bounding box must be minLon,minLat,maxLon,maxLat")).body(null);
+        }
+        return ResponseEntity.ok()
+            .contentType(mediaType)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"sightings." + exportFormat.name().toLowerCase(Locale.ENGLISH) + "\"")
+            .body(out -> sightingService.export(exportFormat, animalId, fromDate, toDate, bbox, out));
+    }
+
     /**
      * GET  /sightings/:id : get the "id" sighting.
      *
@@ -136,4 +376,34 @@ public class SightingResource {
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("sighting", id.toString())).build();
     }
 
+    private void saveBatch(List<Sighting> batch, List<String> objectNames, BulkResultVM result) {
+        try {
+            result.addCreated(sightingService.saveAll(batch).size());
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Could not save a batch of {} Sightings", batch.size(), e);
+            objectNames.forEach(objectName -> result.addRejected(objectName, null, "notsaved"));
+        }
+        batch.clear();
+        objectNames.clear();
+    }
+
+    private static String getField(JsonMappingException e) {
+        return e.getPath().stream()
+            .map(reference -> reference.getFieldName() != null ? reference.getFieldName() : String.valueOf(reference.getIndex()))
+            .collect(Collectors.joining("."));
+    }
+
+    private static boolean isValidBoundingBox(List<Double> bbox) {
+        return bbox.size() == 4 && isValidLongitude(bbox.get(0)) && isValidLatitude(bbox.get(1)) &&
+            isValidLongitude(bbox.get(2)) && isValidLatitude(bbox.get(3)) &&
+            bbox.get(0) <= bbox.get(2) && bbox.get(1) <= bbox.get(3);
+    }
+
+    private static boolean isValidLatitude(double latitude) {
+        return latitude >= -90 && latitude <= 90;
+    }
+
+    private static boolean isValidLongitude(double longitude) {
+        return longitude >= -180 && longitude <= 180;
+    }
 }
@@ -0,0 +1,80 @@
+package com.animalspotting.web.rest;
+
+import com.animalspotting.security.AuthoritiesConstants;
+import com.animalspotting.service.SightingStatsService;
+import com.animalspotting.service.dto.SightingStatsDTO;
+import com.codahale.metrics.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.*;
+
+import javax.inject.Inject;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST controller for getting the sighting statistics.
+ */
+@RestController
+@RequestMapping("/api")
+public class SightingStatsResource {
+
+    private final Logger log = LoggerFactory.getLogger(SightingStatsResource.class);
+
+    @Inject
+    private SightingStatsService sightingStatsService;
+
+    /**
+     * GET  /sightings/stats/days : get the number of sightings of an animal per day.
+     *
+     * @param animalId the id of the animal
+     * @param fromDate the first day, optional
+     * @param toDate the last day, optional
+     * @return the ResponseEntity with status 200 (OK) and the days with sightings in body
+     */
+    @RequestMapping(value = "/sightings/stats/days",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public List<SightingStatsDTO> getDays(@RequestParam Long animalId,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        log.debug("REST request to get the sightings per day of Animal : {}", animalId);
+        return sightingStatsService.findDays(animalId, fromDate, toDate);
+    }
+
+    /**
+     * GET  /sightings/stats/cells : get the number of sightings of an animal per geohash cell.
+     *
+     * @param animalId the id of the animal
+     * @return the ResponseEntity with status 200 (OK) and the cells with sightings in body
+     */
+    @RequestMapping(value = "/sightings/stats/cells",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public List<SightingStatsDTO> getCells(@RequestParam Long animalId) {
+        log.debug("REST request to get the sightings per cell of Animal : {}", animalId);
+        return sightingStatsService.findCells(animalId);
+    }
+
+    /**
+     * POST  /sightings/stats/rebuild : rebuild the sighting statistics from the sightings, in the background.
+     *
+     * @return the ResponseEntity with status 202 (Accepted)
+     */
+    @RequestMapping(value = "/sightings/stats/rebuild",
+        method = RequestMethod.POST)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<Void> rebuild() {
+        log.debug("REST request to rebuild the sighting statistics");
+        sightingStatsService.rebuild();
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+}
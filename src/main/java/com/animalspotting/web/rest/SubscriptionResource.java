@@ -4,6 +4,8 @@ import com.codahale.metrics.annotation.Timed;
 import com.animalspotting.domain.Subscription;
 
 import com.animalspotting.repository.SubscriptionRepository;
+import com.animalspotting.service.SubscriptionIndex;
+import com.animalspotting.service.dto.SubscriptionDTO;
 import com.animalspotting.web.rest.util.HeaderUtil;
 import com.animalspotting.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
@@ -35,6 +37,9 @@ public class SubscriptionResource {
     @Inject
     private SubscriptionRepository subscriptionRepository;
 
+    @Inject
+    private SubscriptionIndex subscriptionIndex;
+
     /**
      * POST  /subscriptions : Create a new subscription.
      *
@@ -52,6 +57,7 @@ public class SubscriptionResource {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("subscription", "idexists", "A new subscription cannot already have an ID")).body(null);
         }
         Subscription result = subscriptionRepository.save(subscription);
+        subscriptionIndex.put(result);
         return ResponseEntity.created(new URI("/api/subscriptions/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert("subscription", result.getId().toString()))
             .body(result);
@@ -76,6 +82,7 @@ public class SubscriptionResource {
             return createSubscription(subscription);
         }
         Subscription result = subscriptionRepository.save(subscription);
+        subscriptionIndex.put(result);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("subscription", subscription.getId().toString()))
             .body(result);
@@ -92,10 +99,10 @@ public class SubscriptionResource {
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<Subscription>> getAllSubscriptions(Pageable pageable)
+    public ResponseEntity<List<SubscriptionDTO>> getAllSubscriptions(Pageable pageable)
         throws URISyntaxException {
         log.debug("REST request to get a page of Subscriptions");
-        Page<Subscription> page = subscriptionRepository.findAll(pageable);
+        Page<SubscriptionDTO> page = subscriptionRepository.findAllDTOs(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/subscriptions");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
@@ -133,6 +140,7 @@ public class SubscriptionResource {
     public ResponseEntity<Void> deleteSubscription(@PathVariable Long id) {
         log.debug("REST request to delete Subscription : {}", id);
         subscriptionRepository.delete(id);
+        subscriptionIndex.remove(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("subscription", id.toString())).build();
     }
 
@@ -1,6 +1,7 @@
 package com.animalspotting.web.rest.util;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -12,9 +13,17 @@ import java.net.URISyntaxException;
  * <p>
  * Pagination uses the same principles as the <a href="https://developer.github.com/v3/#pagination">Github API</a>,
  * and follow <a href="http://tools.ietf.org/html/rfc5988">RFC 5988 (Link header)</a>.
+ * <p>
+ * Large tables can also be paginated with a keyset (cursor): the client asks for the entities after the last id it
+ * has seen, which is an index seek whatever the depth of the page, and no count query is needed.
  */
 public final class PaginationUtil {
 
+    /**
+     * Largest page returned with keyset pagination, the same as the default maximum of the pageable resolver.
+     */
+    public static final int MAX_KEYSET_PAGE_SIZE = 2000;
+
     private PaginationUtil(){
     }
 
@@ -42,6 +51,36 @@ public final class PaginationUtil {
         return headers;
     }
 
+    /**
+     * Generate the headers of a page paginated with a keyset, ordered by id.
+     *
+     * @param slice the page of entities
+     * @param lastId the id of the last entity of the page, the cursor of the next page
+     * @param size the requested size of the page
+     * @param totalCount the total number of entities, or null if the client did not ask for it
+     * @param baseUrl the URL of the resource
+     * @return the headers, with a "next" link only if there are more entities
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(Slice<?> slice, Long lastId, int size,
+                                                                  Long totalCount, String baseUrl) {
+
+        HttpHeaders headers = new HttpHeaders();
+        if (totalCount != null) {
+            headers.add("X-Total-Count", "" + totalCount);
+        }
+        String link = "";
+        if (slice.hasNext() && lastId != null) {
+            link = "<" + generateKeysetUri(baseUrl, lastId, size) + ">; rel=\"next\",";
+        }
+        link += "<" + generateKeysetUri(baseUrl, 0L, size) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    private static String generateKeysetUri(String baseUrl, Long after, int size) {
+        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("after", after).queryParam("size", size).toUriString();
+    }
+
     private static String generateUri(String baseUrl, int page, int size) throws URISyntaxException {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
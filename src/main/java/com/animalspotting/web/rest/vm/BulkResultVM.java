@@ -0,0 +1,51 @@
+package com.animalspotting.web.rest.vm;
+
+import com.animalspotting.web.rest.errors.FieldErrorVM;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * View Model object for the outcome of a bulk creation.
+ * <p>
+ * Rejected records are reported with an object name holding their index in the request, for example
+ * "sighting[12]", and a record may be reported more than once, once for each invalid field.
+ * </p>
+ */
+public class BulkResultVM {
+
+    private int created;
+
+    private final List<FieldErrorVM> rejected = new ArrayList<>();
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void addCreated(int count) {
+        created += count;
+    }
+
+    /**
+     * @return the number of rejected records
+     */
+    public long getRejectedCount() {
+        return rejected.stream().map(FieldErrorVM::getObjectName).distinct().count();
+    }
+
+    public List<FieldErrorVM> getRejected() {
+        return rejected;
+    }
+
+    public void addRejected(String objectName, String field, String message) {
+        rejected.add(new FieldErrorVM(objectName, field, message));
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResultVM{" +
+            "created=" + created +
+            ", rejected=" + rejected.size() +
+            '}';
+    }
+}
@@ -0,0 +1,108 @@
+package com.animalspotting.aop.logging;
+
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.config.JHipsterProperties.Logging.Tracing.Mode;
+import com.codahale.metrics.MetricRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the tracing modes of the LoggingAspect.
+ *
+ * @see LoggingAspect
+ */
+public class LoggingAspectUnitTest {
+
+    private static final String TIMER = "tracing.com.animalspotting.service.MailService.sendEmail";
+
+    private JHipsterProperties jHipsterProperties;
+
+    private MetricRegistry metricRegistry;
+
+    private LoggingAspect loggingAspect;
+
+    private ProceedingJoinPoint joinPoint;
+
+    @Before
+    public void setup() throws Throwable {
+        jHipsterProperties = new JHipsterProperties();
+        metricRegistry = new MetricRegistry();
+        loggingAspect = new LoggingAspect();
+        ReflectionTestUtils.setField(loggingAspect, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(loggingAspect, "metricRegistry", metricRegistry);
+
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(Object.class.getMethod("toString"));
+        when(signature.getDeclaringTypeName()).thenReturn("com.animalspotting.service.MailService");
+        when(signature.getName()).thenReturn("sendEmail");
+        joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getArgs()).thenReturn(new Object[]{"user@localhost"});
+        when(joinPoint.proceed()).thenReturn("result");
+    }
+
+    @Test
+    public void assertThatFastCallsAreTimedButNotLoggedInSlowMode() throws Throwable {
+        jHipsterProperties.getLogging().getTracing().setMode(Mode.SLOW);
+
+        assertThat(loggingAspect.logAround(joinPoint)).isEqualTo("result");
+        assertThat(loggingAspect.logAround(joinPoint)).isEqualTo("result");
+
+        assertThat(metricRegistry.timer(TIMER).getCount()).isEqualTo(2);
+        verify(joinPoint, never()).getArgs();
+    }
+
+    @Test
+    public void assertThatSlowCallsAreLoggedWithoutTheirArgumentsInSlowMode() throws Throwable {
+        jHipsterProperties.getLogging().getTracing().setMode(Mode.SLOW);
+        jHipsterProperties.getLogging().getTracing().setSlowThresholdMs(0);
+
+        loggingAspect.logAround(joinPoint);
+
+        verify(joinPoint, atLeastOnce()).getSignature();
+        verify(joinPoint, never()).getArgs();
+    }
+
+    @Test
+    public void assertThatSampledCallsAreLoggedWithoutTheirArgumentsInSampledMode() throws Throwable {
+        jHipsterProperties.getLogging().getTracing().setMode(Mode.SAMPLED);
+        jHipsterProperties.getLogging().getTracing().setSampleRate(1);
+
+        loggingAspect.logAround(joinPoint);
+
+        verify(joinPoint, never()).getArgs();
+        assertThat(metricRegistry.timer(TIMER).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void assertThatEveryCallIsSampledWithASampleRateOfZero() throws Throwable {
+        jHipsterProperties.getLogging().getTracing().setMode(Mode.SAMPLED);
+        jHipsterProperties.getLogging().getTracing().setSampleRate(0);
+
+        assertThat(loggingAspect.logAround(joinPoint)).isEqualTo("result");
+
+        assertThat(metricRegistry.timer(TIMER).getCount()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assertThatIllegalArgumentsAreNotLoggedOutsideFullMode() throws Throwable {
+        jHipsterProperties.getLogging().getTracing().setMode(Mode.SLOW);
+        when(joinPoint.proceed()).thenThrow(new IllegalArgumentException());
+
+        try {
+            loggingAspect.logAround(joinPoint);
+        } finally {
+            verify(joinPoint, never()).getArgs();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.animalspotting.async;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the metrics of the ExceptionHandlingAsyncTaskExecutor.
+ *
+ * @see ExceptionHandlingAsyncTaskExecutor
+ */
+public class ExceptionHandlingAsyncTaskExecutorUnitTest {
+
+    private MetricRegistry metricRegistry;
+
+    private ExceptionHandlingAsyncTaskExecutor executor;
+
+    private CountDownLatch release;
+
+    @Before
+    public void setup() throws Exception {
+        metricRegistry = new MetricRegistry();
+        executor = new ExceptionHandlingAsyncTaskExecutor(new ThreadPerTaskAsyncTaskExecutor(1, 1, "test-executor-"));
+        executor.setMetricRegistry(metricRegistry);
+        executor.afterPropertiesSet();
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        release.countDown();
+        executor.destroy();
+    }
+
+    @Test
+    public void assertThatTasksAreTimedPerType() throws Exception {
+        release.countDown();
+
+        executor.submit(() -> ExceptionHandlingAsyncTaskExecutor.setCurrentTaskType("MailService.sendEmail"))
+            .get(5, TimeUnit.SECONDS);
+        executor.submit(() -> {
+        }).get(5, TimeUnit.SECONDS);
+
+        assertThat(metricRegistry.timer("async.executor.tasks.MailService.sendEmail.queue-wait").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer("async.executor.tasks.MailService.sendEmail.run").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer("async.executor.tasks.other.run").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer("async.executor.queue-wait").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.timer("async.executor.run").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void assertThatQueuedActiveAndRejectedTasksAreCounted() throws Exception {
+        executor.execute(this::await);
+        executor.execute(this::await);
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!Integer.valueOf(1).equals(metricRegistry.getGauges().get("async.executor.active").getValue()) &&
+            System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        try {
+            executor.execute(this::await);
+            throw new AssertionError("The task should have been rejected");
+        } catch (TaskRejectedException e) {
+            assertThat(metricRegistry.meter("async.executor.rejected").getCount()).isEqualTo(1);
+        }
+
+        assertThat(metricRegistry.getGauges().get("async.executor.queued").getValue()).isEqualTo(1);
+        assertThat(metricRegistry.getGauges().get("async.executor.active").getValue()).isEqualTo(1);
+    }
+
+    private void await() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.animalspotting.async;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the ThreadPerTaskAsyncTaskExecutor.
+ *
+ * @see ThreadPerTaskAsyncTaskExecutor
+ */
+public class ThreadPerTaskAsyncTaskExecutorUnitTest {
+
+    private ThreadPerTaskAsyncTaskExecutor executor;
+
+    private CountDownLatch release;
+
+    @Before
+    public void setup() {
+        executor = new ThreadPerTaskAsyncTaskExecutor(2, 3, "test-executor-");
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void cleanup() {
+        release.countDown();
+        executor.destroy();
+    }
+
+    @Test
+    public void assertThatTasksBeyondTheLimitWaitAndRun() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                await();
+                running.decrementAndGet();
+            }));
+        }
+
+        assertThat(executor.getActiveCount()).isEqualTo(2);
+        assertThat(executor.getQueueSize()).isEqualTo(3);
+        long timeout = System.currentTimeMillis() + 5000;
+        while (running.get() < 2 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(maxRunning.get()).isEqualTo(2);
+        assertThat(executor.getQueueSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void assertThatTasksAreRejectedWhenTheQueueIsFull() {
+        for (int i = 0; i < 5; i++) {
+            executor.execute(this::await);
+        }
+
+        try {
+            executor.execute(this::await);
+            throw new AssertionError("The task should have been rejected");
+        } catch (TaskRejectedException e) {
+            assertThat(executor.getQueueSize()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void assertThatCallablesReturnTheirResult() throws Exception {
+        release.countDown();
+
+        assertThat(executor.submit(() -> 42).get(5, TimeUnit.SECONDS)).isEqualTo(42);
+    }
+
+    @Test(expected = TaskRejectedException.class)
+    public void assertThatTasksAreRejectedAfterShutdown() {
+        executor.destroy();
+
+        executor.execute(this::await);
+    }
+
+    private void await() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
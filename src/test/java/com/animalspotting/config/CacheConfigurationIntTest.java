@@ -0,0 +1,86 @@
+package com.animalspotting.config;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.security.UserDetailsCache;
+import com.codahale.metrics.MetricRegistry;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.Ehcache;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.ehcache.EhCacheCacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.inject.Inject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the CacheConfiguration.
+ *
+ * @see CacheConfiguration
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class CacheConfigurationIntTest {
+
+    private static final String NEW_REGION = "cache-configuration-test";
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Test
+    public void assertThatRegionsAreConfiguredFromTheProperties() {
+        net.sf.ehcache.CacheManager ehcache = ((EhCacheCacheManager) cacheManager).getCacheManager();
+
+        Ehcache userDetails = ehcache.getEhcache(UserDetailsCache.CACHE_NAME);
+        assertThat(userDetails.getCacheConfiguration().getMaxEntriesLocalHeap())
+            .isEqualTo(jHipsterProperties.getCache().getEhcache().getMaxEntries());
+        assertThat(userDetails.getCacheConfiguration().getTimeToLiveSeconds())
+            .isEqualTo(jHipsterProperties.getCache().getTimeToLiveSeconds());
+        assertThat(ehcache.getEhcache(UpdateTimestampsCache.REGION_NAME).getCacheConfiguration().getTimeToLiveSeconds())
+            .isEqualTo(0);
+    }
+
+    @Test
+    public void assertThatHitsAndMissesAreExposedAsMetrics() {
+        org.springframework.cache.Cache cache = cacheManager.getCache(UserDetailsCache.CACHE_NAME);
+        long hits = gauge("cache.userDetails.hits");
+        long misses = gauge("cache.userDetails.misses");
+
+        cache.get("cache-configuration-test");
+        cache.put("cache-configuration-test", "value");
+        cache.get("cache-configuration-test");
+        cache.evict("cache-configuration-test");
+
+        assertThat(gauge("cache.userDetails.hits") - hits).isEqualTo(1);
+        assertThat(gauge("cache.userDetails.misses") - misses).isEqualTo(1);
+    }
+
+    @Test
+    public void assertThatRegionsAddedAfterStartupAreExposedAsMetrics() {
+        net.sf.ehcache.CacheManager ehcache = ((EhCacheCacheManager) cacheManager).getCacheManager();
+        ehcache.addCache(new Cache(new net.sf.ehcache.config.CacheConfiguration(NEW_REGION, 10)));
+        try {
+            ehcache.getCache(NEW_REGION).get("missing");
+
+            assertThat(gauge("cache." + NEW_REGION + ".misses")).isEqualTo(1);
+        } finally {
+            ehcache.removeCache(NEW_REGION);
+        }
+
+        assertThat(metricRegistry.getGauges()).doesNotContainKey("cache." + NEW_REGION + ".misses");
+    }
+
+    private long gauge(String name) {
+        return (Long) metricRegistry.getGauges().get(name).getValue();
+    }
+}
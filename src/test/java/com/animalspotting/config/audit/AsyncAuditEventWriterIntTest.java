@@ -0,0 +1,94 @@
+package com.animalspotting.config.audit;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.repository.CustomAuditEventRepository;
+import com.animalspotting.repository.PersistenceAuditEventRepository;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.actuate.audit.AuditEvent;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the AsyncAuditEventWriter.
+ * <p>
+ * The events are written by the writer in their own transactions, so this test does not run in a transaction
+ * and removes its data afterwards.
+ * </p>
+ *
+ * @see AsyncAuditEventWriter
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class AsyncAuditEventWriterIntTest {
+
+    private static final String PRINCIPAL = "audit-writer-test";
+
+    @Inject
+    private AsyncAuditEventWriter asyncAuditEventWriter;
+
+    @Inject
+    private CustomAuditEventRepository customAuditEventRepository;
+
+    @Inject
+    private PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @After
+    public void cleanup() {
+        jHipsterProperties.getAudit().setBufferSize(10000);
+        asyncAuditEventWriter.flush();
+        persistenceAuditEventRepository.delete(persistenceAuditEventRepository.findByPrincipal(PRINCIPAL));
+    }
+
+    @Test
+    public void assertThatBufferedEventsAreWrittenWithTheirData() {
+        customAuditEventRepository.add(new AuditEvent(PRINCIPAL, "AUTHENTICATION_SUCCESS",
+            Collections.singletonMap("remoteAddress", "127.0.0.1")));
+        customAuditEventRepository.add(new AuditEvent(PRINCIPAL, "AUTHENTICATION_FAILURE",
+            Collections.emptyMap()));
+
+        asyncAuditEventWriter.flush();
+
+        List<AuditEvent> events = new TransactionTemplate(transactionManager)
+            .execute(status -> customAuditEventRepository.find(PRINCIPAL, null));
+        assertThat(events).extracting(AuditEvent::getType)
+            .containsOnly("AUTHENTICATION_SUCCESS", "AUTHENTICATION_FAILURE");
+        AuditEvent success = events.stream()
+            .filter(event -> event.getType().equals("AUTHENTICATION_SUCCESS")).findFirst().get();
+        assertThat(success.getData()).containsOnlyKeys("remoteAddress").containsEntry("remoteAddress", "127.0.0.1");
+    }
+
+    @Test
+    public void assertThatEventsAreDroppedWhenTheBufferIsFull() {
+        asyncAuditEventWriter.flush();
+        long dropped = metricRegistry.meter("audit.writer.dropped").getCount();
+        jHipsterProperties.getAudit().setBufferSize(1);
+
+        for (int i = 0; i < 3; i++) {
+            customAuditEventRepository.add(new AuditEvent(PRINCIPAL, "AUTHENTICATION_SUCCESS",
+                Collections.emptyMap()));
+        }
+
+        assertThat(metricRegistry.meter("audit.writer.dropped").getCount()).isGreaterThan(dropped);
+    }
+}
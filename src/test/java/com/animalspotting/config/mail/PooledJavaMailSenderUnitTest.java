@@ -0,0 +1,101 @@
+package com.animalspotting.config.mail;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Test class for the PooledJavaMailSender, against a fake SMTP server.
+ *
+ * @see PooledJavaMailSender
+ */
+public class PooledJavaMailSenderUnitTest {
+
+    private FakeSmtpServer server;
+
+    private MetricRegistry metricRegistry;
+
+    private PooledJavaMailSender mailSender;
+
+    @Before
+    public void setup() throws Exception {
+        server = new FakeSmtpServer();
+        metricRegistry = new MetricRegistry();
+        mailSender = new PooledJavaMailSender(2, 100, 3, 30000, 1000, metricRegistry);
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.getPort());
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        mailSender.destroy();
+        server.close();
+    }
+
+    @Test
+    public void assertThatMessagesAreSentOverPooledConnections() throws Exception {
+        mailSender.send(message("a@localhost"), message("b@localhost"));
+        mailSender.send(message("c@localhost"));
+
+        assertThat(server.getRecipients()).containsExactly("a@localhost", "b@localhost", "c@localhost");
+        assertThat(server.getConnections()).isEqualTo(1);
+        assertThat(metricRegistry.meter("mail.sent").getCount()).isEqualTo(3);
+        assertThat(metricRegistry.getGauges().get("mail.connections.idle").getValue()).isEqualTo(1);
+    }
+
+    @Test
+    public void assertThatConnectionsAreRenewedAfterTheMaximumNumberOfMessages() throws Exception {
+        mailSender.send(message("a@localhost"), message("b@localhost"), message("c@localhost"),
+            message("d@localhost"));
+
+        assertThat(server.getRecipients()).hasSize(4);
+        assertThat(server.getConnections()).isEqualTo(2);
+    }
+
+    @Test
+    public void assertThatOnlyRejectedMessagesFail() throws Exception {
+        server.rejectRecipient("b@localhost");
+        MimeMessage rejected = message("b@localhost");
+        try {
+            mailSender.send(message("a@localhost"), rejected, message("c@localhost"));
+            fail("MailSendException expected");
+        } catch (MailSendException e) {
+            assertThat(e.getFailedMessages()).containsOnlyKeys(rejected);
+        }
+
+        assertThat(server.getRecipients()).containsExactly("a@localhost", "c@localhost");
+        assertThat(metricRegistry.meter("mail.failed").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void assertThatAllMessagesFailWhenTheServerIsDown() throws Exception {
+        server.close();
+        MimeMessage first = message("a@localhost");
+        MimeMessage second = message("b@localhost");
+        try {
+            mailSender.send(first, second);
+            fail("MailSendException expected");
+        } catch (MailSendException e) {
+            assertThat(e.getFailedMessages()).containsOnlyKeys(first, second);
+        }
+    }
+
+    private MimeMessage message(String to) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, false, "UTF-8");
+        message.setTo(to);
+        message.setFrom("test@localhost");
+        message.setSubject("subject");
+        message.setText("content");
+        return mimeMessage;
+    }
+}
@@ -0,0 +1,43 @@
+package com.animalspotting.domain.util;
+
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the GeoHash utility class.
+ *
+ * @see GeoHash
+ */
+public class GeoHashUnitTest {
+
+    @Test
+    public void testEncode() {
+        assertThat(GeoHash.encode(57.64911, 10.40744, 11)).isEqualTo("u4pruydqqvj");
+        assertThat(GeoHash.encode(-25.382708, -49.265506, 8)).isEqualTo("6gkzwgjz");
+        assertThat(GeoHash.encode(0, 0)).hasSize(GeoHash.MAX_PRECISION);
+    }
+
+    @Test
+    public void testCoveringPrefixesContainPointsOfTheBox() {
+        Set<String> prefixes = GeoHash.coveringPrefixes(48.8, 2.2, 48.9, 2.5, 32);
+        assertThat(prefixes.size()).isBetween(1, 32);
+        for (double latitude = 48.8; latitude <= 48.9; latitude += 0.01) {
+            for (double longitude = 2.2; longitude <= 2.5; longitude += 0.01) {
+                String hash = GeoHash.encode(latitude, longitude);
+                assertThat(prefixes.stream().anyMatch(hash::startsWith)).isTrue();
+            }
+        }
+    }
+
+    @Test
+    public void testCoveringPrefixesOfTheWholeWorld() {
+        Set<String> prefixes = GeoHash.coveringPrefixes(-90, -180, 90, 180, 32);
+        assertThat(prefixes).hasSize(32);
+        for (String prefix : prefixes) {
+            assertThat(prefix).hasSize(1);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.animalspotting.domain.util;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.repository.UserRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the JdbcStatistics, as recorded by the Hibernate listener and interceptor.
+ *
+ * @see JdbcStatistics
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+@Transactional
+public class JdbcStatisticsIntTest {
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Test
+    public void assertThatStatementsAreCountedAndTimed() {
+        JdbcStatistics.current().reset();
+
+        userRepository.findOneByLogin("admin");
+        userRepository.findOneByLogin("user");
+        userRepository.findOneByLogin("system");
+
+        JdbcStatistics jdbcStatistics = JdbcStatistics.current().snapshot();
+        assertThat(jdbcStatistics.getStatements()).isEqualTo(3);
+        assertThat(jdbcStatistics.getNanos()).isPositive();
+        Map<String, Integer> repeated = jdbcStatistics.getRepeatedStatements(2);
+        assertThat(repeated).hasSize(1);
+        assertThat(repeated.values()).containsExactly(3);
+        assertThat(jdbcStatistics.getRepeatedStatements(3)).isEmpty();
+    }
+
+    @Test
+    public void assertThatResetClearsTheStatistics() {
+        userRepository.findOneByLogin("admin");
+
+        JdbcStatistics.current().reset();
+
+        assertThat(JdbcStatistics.current().getStatements()).isEqualTo(0);
+        assertThat(JdbcStatistics.current().getRepeatedStatements(0)).isEmpty();
+    }
+}
@@ -0,0 +1,106 @@
+package com.animalspotting.security;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the BoundedPasswordEncoder.
+ *
+ * @see BoundedPasswordEncoder
+ */
+public class BoundedPasswordEncoderUnitTest {
+
+    private MetricRegistry metricRegistry;
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    private CountDownLatch release;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void cleanup() {
+        release.countDown();
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    public void assertThatPasswordsAreHashedAndTimed() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 4, 1, 1, metricRegistry);
+
+        String encoded = passwordEncoder.encode("password");
+
+        assertThat(passwordEncoder.matches("password", encoded)).isTrue();
+        assertThat(passwordEncoder.matches("other", encoded)).isFalse();
+        assertThat(metricRegistry.timer("password.encoder.encode").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer("password.encoder.matches").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void assertThatHashesOfALowerCostAreUpgraded() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 5, 1, 1, metricRegistry);
+
+        assertThat(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(passwordEncoder.encode("password"))).isFalse();
+        assertThat(passwordEncoder.upgradeEncoding("not a bcrypt hash")).isFalse();
+    }
+
+    @Test
+    public void assertThatPasswordsAreRejectedWhenTheQueueIsFull() throws Exception {
+        passwordEncoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(), 4, 1, 1, metricRegistry);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            callers.submit(() -> passwordEncoder.encode("first"));
+            callers.submit(() -> passwordEncoder.encode("second"));
+            long timeout = System.currentTimeMillis() + 5000;
+            while (!Integer.valueOf(1).equals(metricRegistry.getGauges().get("password.encoder.queued").getValue()) &&
+                System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+
+            try {
+                passwordEncoder.encode("third");
+                throw new AssertionError("The password should have been rejected");
+            } catch (PasswordHashingRejectedException e) {
+                assertThat(metricRegistry.meter("password.encoder.rejected").getCount()).isEqualTo(1);
+            }
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            callers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private class BlockingPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
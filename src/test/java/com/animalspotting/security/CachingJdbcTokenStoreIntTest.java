@@ -0,0 +1,121 @@
+package com.animalspotting.security;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the CachingJdbcTokenStore.
+ *
+ * @see CachingJdbcTokenStore
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class CachingJdbcTokenStoreIntTest {
+
+    private static final String TOKEN_VALUE = "caching-token-store-test";
+
+    private static final String[] LOGINS = {"user", "admin", "system"};
+
+    @Inject
+    private CachingJdbcTokenStore tokenStore;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private DataSource dataSource;
+
+    @After
+    public void cleanup() {
+        tokenStore.removeAccessToken(TOKEN_VALUE);
+        for (int i = 0; i < 3; i++) {
+            tokenStore.removeAccessToken(TOKEN_VALUE + "-" + i);
+        }
+    }
+
+    @Test
+    public void assertThatReadTokenIsCachedUntilRemoved() {
+        store(tokenStore, TOKEN_VALUE, "user", null);
+
+        long hits = metricRegistry.meter("oauth2.token-cache.hits").getCount();
+        long misses = metricRegistry.meter("oauth2.token-cache.misses").getCount();
+        OAuth2AccessToken firstRead = tokenStore.readAccessToken(TOKEN_VALUE);
+        assertThat(tokenStore.readAuthentication(firstRead).getName()).isEqualTo("user");
+        OAuth2AccessToken secondRead = tokenStore.readAccessToken(TOKEN_VALUE);
+        assertThat(tokenStore.readAuthentication(secondRead).getName()).isEqualTo("user");
+        assertThat(secondRead).isSameAs(firstRead);
+        // one lookup per resolution of the token, not one per read
+        assertThat(metricRegistry.meter("oauth2.token-cache.hits").getCount()).isEqualTo(hits + 1);
+        assertThat(metricRegistry.meter("oauth2.token-cache.misses").getCount()).isEqualTo(misses + 1);
+
+        tokenStore.removeAccessToken(secondRead);
+        assertThat(tokenStore.readAccessToken(TOKEN_VALUE)).isNull();
+    }
+
+    @Test
+    public void assertThatTheLeastRecentlyUsedTokenIsEvictedWhenTheCacheIsFull() {
+        MetricRegistry registry = new MetricRegistry();
+        CachingJdbcTokenStore smallTokenStore = new CachingJdbcTokenStore(dataSource, 2, 60, registry);
+        for (int i = 0; i < 3; i++) {
+            store(smallTokenStore, TOKEN_VALUE + "-" + i, LOGINS[i], null);
+        }
+        long misses = registry.meter("oauth2.token-cache.misses").getCount();
+
+        smallTokenStore.readAccessToken(TOKEN_VALUE + "-0");
+        smallTokenStore.readAccessToken(TOKEN_VALUE + "-1");
+        smallTokenStore.readAccessToken(TOKEN_VALUE + "-0");
+        smallTokenStore.readAccessToken(TOKEN_VALUE + "-2");
+        assertThat(registry.meter("oauth2.token-cache.hits").getCount()).isEqualTo(1);
+
+        // token 1 was the least recently used one, the new token 2 is cached in its place
+        smallTokenStore.readAccessToken(TOKEN_VALUE + "-2");
+        smallTokenStore.readAccessToken(TOKEN_VALUE + "-0");
+        assertThat(registry.meter("oauth2.token-cache.hits").getCount()).isEqualTo(3);
+        smallTokenStore.readAccessToken(TOKEN_VALUE + "-1");
+        assertThat(registry.meter("oauth2.token-cache.misses").getCount() - misses).isEqualTo(4);
+        assertThat(registry.getGauges().get("oauth2.token-cache.size").getValue()).isEqualTo(2);
+    }
+
+    @Test
+    public void assertThatTokensAreEvictedByRefreshToken() {
+        store(tokenStore, TOKEN_VALUE, "user", "caching-token-store-test-refresh");
+        assertThat(tokenStore.readAccessToken(TOKEN_VALUE)).isNotNull();
+
+        tokenStore.removeAccessTokenUsingRefreshToken("caching-token-store-test-refresh");
+
+        assertThat(tokenStore.readAccessToken(TOKEN_VALUE)).isNull();
+    }
+
+    private static void store(CachingJdbcTokenStore tokenStore, String tokenValue, String login, String refreshToken) {
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken(tokenValue);
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + 60000));
+        if (refreshToken != null) {
+            accessToken.setRefreshToken(new DefaultOAuth2RefreshToken(refreshToken));
+        }
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "animalSpottingapp",
+            Collections.emptyList(), true, Collections.emptySet(), Collections.emptySet(), null,
+            Collections.emptySet(), Collections.emptyMap());
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken(login, null,
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER)));
+        tokenStore.storeAccessToken(accessToken, new OAuth2Authentication(request, user));
+    }
+}
@@ -0,0 +1,77 @@
+package com.animalspotting.security;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.domain.User;
+import com.animalspotting.repository.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.inject.Inject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the PasswordUpgradingAuthenticationProvider.
+ * <p>
+ * The hash is upgraded asynchronously once the login is over, so this test does not run in a transaction and
+ * removes its user afterwards.
+ * </p>
+ *
+ * @see PasswordUpgradingAuthenticationProvider
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class PasswordUpgradingAuthenticationProviderIntTest {
+
+    private static final String LOGIN = "password-upgrade";
+
+    @Inject
+    private AuthenticationManager authenticationManager;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Inject
+    private UserDetailsCache userDetailsCache;
+
+    @Before
+    public void initTest() {
+        User user = new User();
+        user.setLogin(LOGIN);
+        user.setPassword(new BCryptPasswordEncoder(4).encode("password"));
+        user.setEmail(LOGIN + "@localhost");
+        user.setActivated(true);
+        userRepository.save(user);
+    }
+
+    @After
+    public void cleanup() {
+        userRepository.findOneByLogin(LOGIN).ifPresent(userRepository::delete);
+        userDetailsCache.evict(LOGIN);
+    }
+
+    @Test
+    public void assertThatOutdatedHashesAreUpgradedOnLogin() throws Exception {
+        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(LOGIN, "password"));
+
+        long timeout = System.currentTimeMillis() + 5000;
+        String password = userRepository.findOneByLogin(LOGIN).get().getPassword();
+        while (passwordEncoder.upgradeEncoding(password) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+            password = userRepository.findOneByLogin(LOGIN).get().getPassword();
+        }
+        assertThat(passwordEncoder.upgradeEncoding(password)).isFalse();
+        assertThat(passwordEncoder.matches("password", password)).isTrue();
+        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(LOGIN, "password"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.animalspotting.security;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.domain.User;
+import com.animalspotting.domain.util.JdbcStatistics;
+import com.animalspotting.repository.UserRepository;
+import com.animalspotting.service.UserService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.inject.Inject;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the UserDetailsService.
+ * <p>
+ * The cache is only updated once the transactions have committed, so this test does not run in a transaction
+ * and restores the user it changes afterwards.
+ * </p>
+ *
+ * @see UserDetailsService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class UserDetailsServiceIntTest {
+
+    @Inject
+    private org.springframework.security.core.userdetails.UserDetailsService userDetailsService;
+
+    @Inject
+    private UserDetailsCache userDetailsCache;
+
+    @Inject
+    private UserService userService;
+
+    @Inject
+    private UserRepository userRepository;
+
+    private User user;
+
+    @Before
+    public void initTest() {
+        user = userRepository.findOneByLogin("user").get();
+        userDetailsCache.evict("user");
+    }
+
+    @After
+    public void cleanup() {
+        update(true);
+    }
+
+    @Test
+    public void assertThatUsersAreLoadedFromTheCacheWithSharedAuthorities() {
+        UserDetails first = userDetailsService.loadUserByUsername("USER");
+
+        JdbcStatistics.current().reset();
+        UserDetails second = userDetailsService.loadUserByUsername("user");
+
+        assertThat(JdbcStatistics.current().getStatements()).isEqualTo(0);
+        assertThat(second.getUsername()).isEqualTo("user");
+        assertThat(second.getPassword()).isEqualTo(user.getPassword());
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getAuthorities()).hasSize(1);
+        assertThat(second.getAuthorities().iterator().next()).isSameAs(first.getAuthorities().iterator().next());
+        assertThat(second.getAuthorities().iterator().next().getAuthority()).isEqualTo(AuthoritiesConstants.USER);
+    }
+
+    @Test(expected = UserNotActivatedException.class)
+    public void assertThatUpdatedUsersAreEvicted() {
+        userDetailsService.loadUserByUsername("user");
+
+        update(false);
+
+        userDetailsService.loadUserByUsername("user");
+    }
+
+    @Test
+    public void assertThatUsersLoadedBeforeAnEvictionAreNotCached() {
+        // a user read with its previous password, then evicted once its password change commits
+        long generation = userDetailsCache.getGeneration();
+        UserDetailsCache.Entry stale = new UserDetailsCache.Entry("stale-password", Collections.emptyList());
+        userDetailsCache.evict("user");
+
+        assertThat(userDetailsCache.put("user", stale, generation)).isFalse();
+        assertThat(userDetailsCache.get("user")).isNull();
+        assertThat(userDetailsCache.put("user", stale, userDetailsCache.getGeneration())).isTrue();
+    }
+
+    private void update(boolean activated) {
+        userService.updateUser(user.getId(), user.getLogin(), user.getFirstName(), user.getLastName(),
+            user.getEmail(), activated, user.getLangKey(), Collections.singleton(AuthoritiesConstants.USER));
+    }
+}
@@ -0,0 +1,106 @@
+package com.animalspotting.service;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.domain.PersistentAuditEvent;
+import com.animalspotting.repository.PersistenceAuditEventRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the AuditEventRetentionService.
+ * <p>
+ * The events are deleted in their own transactions, so this test does not run in a transaction and removes
+ * its data afterwards.
+ * </p>
+ *
+ * @see AuditEventRetentionService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class AuditEventRetentionServiceIntTest {
+
+    private static final String PRINCIPAL = "audit-retention-test";
+
+    @Inject
+    private AuditEventRetentionService auditEventRetentionService;
+
+    @Inject
+    private PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    @Inject
+    private JobLockService jobLockService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Before
+    public void initTest() {
+        jHipsterProperties.getAudit().setRetentionDays(30);
+    }
+
+    @After
+    public void cleanup() {
+        jHipsterProperties.getAudit().setRetentionDays(365);
+        persistenceAuditEventRepository.delete(persistenceAuditEventRepository.findByPrincipal(PRINCIPAL));
+    }
+
+    @Test
+    public void assertThatOnlyTheEventsOlderThanTheRetentionPeriodAreDeleted() {
+        LocalDateTime now = LocalDateTime.now();
+        save(now.minusYears(2));
+        save(now.minusDays(40));
+        save(now.minusDays(40).minusHours(1));
+        save(now.minusDays(5));
+
+        assertThat(auditEventRetentionService.purge()).isEqualTo(3);
+
+        assertThat(persistenceAuditEventRepository.findByPrincipal(PRINCIPAL))
+            .extracting(PersistentAuditEvent::getAuditEventDate).containsExactly(now.minusDays(5));
+    }
+
+    @Test
+    public void assertThatNothingIsDeletedWithoutRetentionPeriod() {
+        jHipsterProperties.getAudit().setRetentionDays(0);
+        save(LocalDateTime.now().minusYears(2));
+
+        assertThat(auditEventRetentionService.purge()).isEqualTo(0);
+        assertThat(persistenceAuditEventRepository.findByPrincipal(PRINCIPAL)).hasSize(1);
+    }
+
+    @Test
+    public void assertThatNothingIsDeletedWhileAnotherNodeHoldsTheLock() {
+        save(LocalDateTime.now().minusYears(2));
+        Optional<String> lock = jobLockService.tryLock("purgeAuditEvents", Duration.ofMinutes(1));
+        assertThat(lock.isPresent()).isTrue();
+        try {
+            assertThat(auditEventRetentionService.purge()).isEqualTo(0);
+            assertThat(persistenceAuditEventRepository.findByPrincipal(PRINCIPAL)).hasSize(1);
+        } finally {
+            jobLockService.unlock("purgeAuditEvents", lock.get());
+        }
+
+        assertThat(auditEventRetentionService.purge()).isEqualTo(1);
+    }
+
+    private void save(LocalDateTime date) {
+        PersistentAuditEvent event = new PersistentAuditEvent();
+        event.setPrincipal(PRINCIPAL);
+        event.setAuditEventType("AUTHENTICATION_SUCCESS");
+        event.setAuditEventDate(date);
+        event.setData(Collections.singletonMap("remoteAddress", "127.0.0.1"));
+        persistenceAuditEventRepository.save(event);
+    }
+}
@@ -0,0 +1,70 @@
+package com.animalspotting.service;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.domain.Animal;
+import com.animalspotting.domain.Sighting;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.inject.Inject;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the MailTemplateService.
+ *
+ * @see MailTemplateService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class MailTemplateServiceIntTest {
+
+    private static final Locale SWEDISH = Locale.forLanguageTag("sv");
+
+    @Inject
+    private MailTemplateService mailTemplateService;
+
+    @Test
+    public void assertThatSubjectsAreResolvedPerLocale() {
+        assertThat(mailTemplateService.getSubject("email.sighting.title", Locale.ENGLISH))
+            .isEqualTo("animalSpotting sighting alert");
+        assertThat(mailTemplateService.getSubject("email.sighting.title", SWEDISH))
+            .isEqualTo("animalSpotting observation");
+        assertThat(mailTemplateService.getSubject("email.sighting.title", Locale.ENGLISH))
+            .isSameAs(mailTemplateService.getSubject("email.sighting.title", Locale.ENGLISH));
+    }
+
+    @Test
+    public void assertThatSightingEmailIsRenderedOncePerLocale() {
+        Animal animal = new Animal().name("Moose");
+        animal.setId(42L);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("animal", animal);
+        variables.put("sightings", Arrays.asList(
+            new Sighting().date(LocalDate.of(2016, 11, 14)).latitude(59.5f).longitude(18.25f).count(3),
+            new Sighting().latitude(60f).longitude(17f).count(1)));
+        variables.put("baseUrl", "http://example.org");
+
+        Map<Locale, String> contents = mailTemplateService.render("sightingEmail",
+            Arrays.asList(Locale.ENGLISH, SWEDISH, Locale.ENGLISH), variables);
+
+        assertThat(contents).containsOnlyKeys(Locale.ENGLISH, SWEDISH);
+        assertThat(contents.get(Locale.ENGLISH))
+            .contains("Moose was sighted 2 times:")
+            .contains("2016-11-14")
+            .contains("at 59.5, 18.25")
+            .contains("(3 individuals)")
+            .contains("On an unknown date")
+            .contains("http://example.org/#/animal/42");
+        assertThat(contents.get(SWEDISH))
+            .contains("Moose har observerats 2 gånger:")
+            .contains("(3 individer)");
+    }
+}
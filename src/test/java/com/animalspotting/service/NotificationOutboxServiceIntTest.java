@@ -0,0 +1,180 @@
+package com.animalspotting.service;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.domain.NotificationOutbox;
+import com.animalspotting.domain.NotificationOutbox.Status;
+import com.animalspotting.repository.NotificationOutboxRepository;
+import com.animalspotting.repository.SightingNotificationRepository;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the NotificationOutboxService.
+ * <p>
+ * The outbox is dispatched in its own transactions, so this test does not run in a transaction and removes
+ * its data afterwards.
+ * </p>
+ *
+ * @see NotificationOutboxService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class NotificationOutboxServiceIntTest {
+
+    @Inject
+    private NotificationOutboxService notificationOutboxService;
+
+    @Inject
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Inject
+    private SightingNotificationRepository sightingNotificationRepository;
+
+    @Inject
+    private MailService mailService;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Mock
+    private MailService mockMailService;
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(mockMailService.createEmail(anyString(), anyString(), anyString(), anyBoolean(), anyBoolean()))
+            .thenAnswer(invocation -> mailService.createEmail(invocation.getArgumentAt(0, String.class),
+                invocation.getArgumentAt(1, String.class), invocation.getArgumentAt(2, String.class), false, false));
+        ReflectionTestUtils.setField(notificationOutboxService, "mailService", mockMailService);
+        sightingNotificationRepository.deleteAll();
+        notificationOutboxRepository.deleteAll();
+    }
+
+    @After
+    public void cleanup() {
+        ReflectionTestUtils.setField(notificationOutboxService, "mailService", mailService);
+        notificationOutboxRepository.deleteAll();
+    }
+
+    @Test
+    public void assertThatQueuedNotificationsAreDeliveredOnce() throws Exception {
+        enqueue("a@localhost", "b@localhost");
+
+        assertThat(notificationOutboxService.dispatch()).isEqualTo(2);
+        assertThat(notificationOutboxService.dispatch()).isEqualTo(0);
+
+        verify(mockMailService).createEmail("a@localhost", "subject", "content", false, false);
+        verify(mockMailService).createEmail("b@localhost", "subject", "content", false, false);
+        verify(mockMailService, times(1)).deliverEmails(anyVararg());
+        List<NotificationOutbox> notifications = notificationOutboxRepository.findAll();
+        assertThat(notifications).extracting(NotificationOutbox::getStatus).containsOnly(Status.DELIVERED);
+        assertThat(notifications).extracting(NotificationOutbox::getClaimToken).containsOnly((String) null);
+        assertThat(notificationOutboxRepository.countByStatus(Status.PENDING)).isEqualTo(0);
+    }
+
+    @Test
+    public void assertThatFailedNotificationsAreRetriedLater() throws Exception {
+        doAnswer(invocation -> {
+            Map<Object, Exception> failedMessages = new HashMap<>();
+            for (Object mimeMessage : invocation.getArguments()) {
+                if (((MimeMessage) mimeMessage).getAllRecipients()[0].toString().equals("a@localhost")) {
+                    failedMessages.put(mimeMessage, new MessagingException("connection refused"));
+                }
+            }
+            throw new MailSendException(failedMessages);
+        }).when(mockMailService).deliverEmails(anyVararg());
+        enqueue("a@localhost", "b@localhost");
+
+        assertThat(notificationOutboxService.dispatch()).isEqualTo(1);
+
+        NotificationOutbox notification = notificationOutboxRepository.findAll().stream()
+            .filter(outbox -> outbox.getRecipient().equals("a@localhost")).findFirst().get();
+        assertThat(notificationOutboxRepository.countByStatus(Status.DELIVERED)).isEqualTo(1);
+        assertThat(notification.getStatus()).isEqualTo(Status.PENDING);
+        assertThat(notification.getAttempts()).isEqualTo(1);
+        assertThat(notification.getLastError()).contains("connection refused");
+        assertThat(notification.getNextAttemptDate().isAfter(ZonedDateTime.now())).isTrue();
+        assertThat(notificationOutboxService.dispatch()).isEqualTo(0);
+    }
+
+    @Test
+    public void assertThatNotificationsClaimedByAnotherNodeAreSkipped() {
+        enqueue("a@localhost");
+        Long id = notificationOutboxRepository.findAll().get(0).getId();
+        ZonedDateTime now = ZonedDateTime.now();
+        new TransactionTemplate(transactionManager).execute(status ->
+            notificationOutboxRepository.claim("other-node", now.plusMinutes(5), Collections.singletonList(id), now));
+
+        assertThat(notificationOutboxService.dispatch()).isEqualTo(0);
+        verify(mockMailService, never()).deliverEmails(anyVararg());
+    }
+
+    @Test
+    public void assertThatNotificationsClaimedByAnotherNodeWhileSentAreLeftToIt() throws Exception {
+        enqueue("a@localhost");
+        Long id = notificationOutboxRepository.findAll().get(0).getId();
+        long claimLost = metricRegistry.meter("notification.outbox.claim-lost").getCount();
+        doAnswer(invocation -> {
+            // the lease of this node expires while the e-mail is sent, and another node claims the notification
+            ZonedDateTime later = ZonedDateTime.now().plusDays(1);
+            new TransactionTemplate(transactionManager).execute(status -> notificationOutboxRepository.claim(
+                "other-node", later.plusMinutes(5), Collections.singletonList(id), later));
+            return null;
+        }).when(mockMailService).deliverEmails(anyVararg());
+
+        assertThat(notificationOutboxService.dispatch()).isEqualTo(1);
+
+        NotificationOutbox notification = notificationOutboxRepository.findOne(id);
+        assertThat(notification.getStatus()).isEqualTo(Status.PENDING);
+        assertThat(notification.getAttempts()).isEqualTo(0);
+        assertThat(notification.getClaimToken()).isEqualTo("other-node");
+        assertThat(metricRegistry.meter("notification.outbox.claim-lost").getCount() - claimLost).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalTransactionStateException.class)
+    public void assertThatNotificationsAreOnlyQueuedInATransaction() {
+        notificationOutboxService.enqueue(Collections.singletonList("a@localhost"), "subject", "content", false);
+    }
+
+    private void enqueue(String... recipients) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            notificationOutboxService.enqueue(Arrays.asList(recipients), "subject", "content", false);
+            return null;
+        });
+    }
+}
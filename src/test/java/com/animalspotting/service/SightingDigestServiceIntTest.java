@@ -0,0 +1,120 @@
+package com.animalspotting.service;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.domain.Sighting;
+import com.animalspotting.service.event.SightingCreatedEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test class for the SightingDigestService.
+ *
+ * @see SightingDigestService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class SightingDigestServiceIntTest {
+
+    @Inject
+    private SightingDigestService sightingDigestService;
+
+    @Inject
+    private SightingNotificationService sightingNotificationService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Mock
+    private SightingNotificationService mockSightingNotificationService;
+
+    @Captor
+    private ArgumentCaptor<List<Sighting>> sightings;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(sightingDigestService, "sightingNotificationService", mockSightingNotificationService);
+        jHipsterProperties.getNotification().getDigest().setEnabled(true);
+    }
+
+    @After
+    public void cleanup() {
+        jHipsterProperties.getNotification().getDigest().setEnabled(false);
+        sightingDigestService.flushAll();
+        ReflectionTestUtils.setField(sightingDigestService, "sightingNotificationService", sightingNotificationService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void assertThatSightingsOfAnAnimalAreNotifiedOncePerWindow() {
+        Sighting first = new Sighting().count(1);
+        Sighting second = new Sighting().count(2);
+        Sighting third = new Sighting().count(3);
+        sightingDigestService.onSightingCreated(new SightingCreatedEvent(-1L, Collections.singletonList(first)));
+        sightingDigestService.onSightingCreated(new SightingCreatedEvent(-1L, Arrays.asList(second, third)));
+        sightingDigestService.onSightingCreated(new SightingCreatedEvent(-2L, Collections.singletonList(first)));
+        verify(mockSightingNotificationService, never()).notifySubscribers(any(), anyListOf(Sighting.class));
+
+        advanceWindow();
+
+        verify(mockSightingNotificationService).notifySubscribers(eq(-1L), sightings.capture());
+        assertThat(sightings.getValue()).containsExactly(first, second, third);
+        verify(mockSightingNotificationService).notifySubscribers(-2L, Collections.singletonList(first));
+
+        sightingDigestService.onSightingCreated(new SightingCreatedEvent(-1L, Collections.singletonList(first)));
+        advanceWindow();
+
+        verify(mockSightingNotificationService, times(2)).notifySubscribers(eq(-1L), anyListOf(Sighting.class));
+    }
+
+    @Test
+    public void assertThatOpenDigestsAreFlushedOnShutdown() {
+        Sighting sighting = new Sighting().count(1);
+        sightingDigestService.onSightingCreated(new SightingCreatedEvent(-1L, Collections.singletonList(sighting)));
+
+        sightingDigestService.flushAll();
+
+        verify(mockSightingNotificationService).notifySubscribers(-1L, Collections.singletonList(sighting));
+    }
+
+    @Test
+    public void assertThatNothingIsCollectedWhenDisabled() {
+        jHipsterProperties.getNotification().getDigest().setEnabled(false);
+        sightingDigestService.onSightingCreated(new SightingCreatedEvent(-1L, Collections.singletonList(new Sighting())));
+
+        sightingDigestService.flushAll();
+
+        verify(mockSightingNotificationService, never()).notifySubscribers(any(), anyListOf(Sighting.class));
+    }
+
+    private void advanceWindow() {
+        JHipsterProperties.Notification.Digest digest = jHipsterProperties.getNotification().getDigest();
+        long ticks = digest.getWindowSeconds() * 1000L / digest.getTickMs() + 1;
+        for (long i = 0; i < ticks; i++) {
+            sightingDigestService.advance();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.animalspotting.service;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.domain.Animal;
+import com.animalspotting.domain.NotificationOutbox;
+import com.animalspotting.domain.Sighting;
+import com.animalspotting.domain.SightingNotification;
+import com.animalspotting.domain.Subscription;
+import com.animalspotting.domain.User;
+import com.animalspotting.repository.AnimalRepository;
+import com.animalspotting.repository.NotificationOutboxRepository;
+import com.animalspotting.repository.SightingNotificationRepository;
+import com.animalspotting.repository.SubscriptionRepository;
+import com.animalspotting.repository.UserRepository;
+import com.animalspotting.service.event.SightingCreatedEvent;
+import com.animalspotting.web.rest.SightingResource;
+import com.animalspotting.web.rest.TestUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for the SightingNotificationService.
+ * <p>
+ * The notifications are queued once the sightings are committed, so this test does not run in a transaction
+ * and removes its data afterwards.
+ * </p>
+ *
+ * @see SightingNotificationService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class SightingNotificationServiceIntTest {
+
+    @Inject
+    private SightingNotificationService sightingNotificationService;
+
+    @Inject
+    private SightingService sightingService;
+
+    @Inject
+    private SubscriptionIndex subscriptionIndex;
+
+    @Inject
+    private AnimalRepository animalRepository;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private SubscriptionRepository subscriptionRepository;
+
+    @Inject
+    private SightingNotificationRepository sightingNotificationRepository;
+
+    @Inject
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    private MockMvc restSightingMockMvc;
+
+    private Animal animal;
+
+    private User user;
+
+    private List<Subscription> subscriptions;
+
+    private List<Long> sightingIds;
+
+    @Before
+    public void initTest() {
+        SightingResource sightingResource = new SightingResource();
+        ReflectionTestUtils.setField(sightingResource, "sightingService", sightingService);
+        ReflectionTestUtils.setField(sightingResource, "objectMapper", objectMapper);
+        restSightingMockMvc = MockMvcBuilders.standaloneSetup(sightingResource)
+            .setMessageConverters(jacksonMessageConverter).build();
+        sightingNotificationRepository.deleteAll();
+        notificationOutboxRepository.deleteAll();
+        animal = animalRepository.save(new Animal().name("notified-animal"));
+        user = userRepository.findOneByLogin("user").get();
+        subscriptions = new ArrayList<>();
+        sightingIds = new ArrayList<>();
+        for (String login : new String[]{"user", "admin"}) {
+            Subscription subscription = new Subscription();
+            subscription.setUser(userRepository.findOneByLogin(login).get());
+            subscription.setAnimal(animal);
+            subscriptions.add(subscriptionRepository.save(subscription));
+            subscriptionIndex.put(subscription);
+        }
+    }
+
+    @After
+    public void cleanup() {
+        for (Long sightingId : sightingIds) {
+            sightingService.delete(sightingId);
+        }
+        for (Subscription subscription : subscriptions) {
+            subscriptionIndex.remove(subscription.getId());
+            subscriptionRepository.delete(subscription);
+        }
+        animalRepository.delete(animal);
+        sightingNotificationRepository.deleteAll();
+        notificationOutboxRepository.deleteAll();
+    }
+
+    @Test
+    public void assertThatASightingOnlyQueuesItsIdUntilTheDispatcherExpandsIt() {
+        Sighting sighting = save();
+
+        List<SightingNotification> pending = sightingNotificationRepository.findAll();
+        assertThat(pending).hasSize(1);
+        assertThat(pending.get(0).getAnimalId()).isEqualTo(animal.getId());
+        assertThat(pending.get(0).getSightingIds()).containsExactly(sighting.getId());
+        assertThat(notificationOutboxRepository.count()).isEqualTo(0);
+
+        assertThat(sightingNotificationService.expandPending()).isEqualTo(2);
+
+        assertThat(sightingNotificationRepository.count()).isEqualTo(0);
+        assertThat(notificationOutboxRepository.findAll()).extracting(NotificationOutbox::getRecipient)
+            .containsOnly("user@localhost", "admin@localhost");
+        assertThat(sightingNotificationService.expandPending()).isEqualTo(0);
+    }
+
+    @Test
+    public void assertThatDeletedSightingsAreNotNotified() {
+        Sighting sighting = save();
+        sightingService.delete(sighting.getId());
+        sightingIds.remove(sighting.getId());
+
+        assertThat(sightingNotificationService.expandPending()).isEqualTo(0);
+
+        assertThat(sightingNotificationRepository.count()).isEqualTo(0);
+        assertThat(notificationOutboxRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void assertThatPostingASightingReturnsBeforeTheSubscribersAreNotified() throws Exception {
+        Sighting sighting = new Sighting().date(LocalDate.now()).latitude(-45f).longitude(170f).count(1)
+            .user(user).animal(animal);
+
+        restSightingMockMvc.perform(post("/api/sightings")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(sighting)))
+            .andExpect(status().isCreated());
+
+        // the sighting is committed, and its subscribers only notified once the dispatcher runs
+        List<SightingNotification> pending = sightingNotificationRepository.findAll();
+        assertThat(pending).hasSize(1);
+        sightingIds.addAll(pending.get(0).getSightingIds());
+        assertThat(notificationOutboxRepository.count()).isEqualTo(0);
+        assertThat(sightingNotificationService.expandPending()).isEqualTo(2);
+    }
+
+    @Test
+    public void assertThatSightingsWithoutAnAnimalAreNotNotified() {
+        sightingNotificationService.onSightingCreated(new SightingCreatedEvent(new Sighting().count(1)));
+
+        assertThat(sightingNotificationRepository.count()).isEqualTo(0);
+    }
+
+    private Sighting save() {
+        Sighting sighting = new TransactionTemplate(transactionManager).execute(status -> sightingService.save(
+            new Sighting().date(LocalDate.now()).latitude(-45f).longitude(170f).count(1).user(user).animal(animal)));
+        sightingIds.add(sighting.getId());
+        return sighting;
+    }
+}
@@ -0,0 +1,90 @@
+package com.animalspotting.service;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.domain.Sighting;
+import com.animalspotting.repository.SightingRepository;
+import com.animalspotting.web.rest.SightingResourceIntTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the SightingService.
+ *
+ * @see SightingService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+@Transactional
+public class SightingServiceIntTest {
+
+    @Inject
+    private SightingRepository sightingRepository;
+
+    @Inject
+    private SightingService sightingService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private EntityManager em;
+
+    private Sighting sighting;
+
+    @Before
+    public void initTest() {
+        sighting = sightingRepository.saveAndFlush(SightingResourceIntTest.createEntity(em));
+    }
+
+    @Test
+    public void assertThatExportAsCsvWritesMatchingSightings() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = sightingService.export(SightingService.ExportFormat.CSV, sighting.getAnimal().getId(),
+            null, null, Arrays.asList(0d, 0d, 2d, 2d), out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertThat(exported).isEqualTo(1);
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo("id,date,latitude,longitude,count,animalId,animalName");
+        assertThat(lines[1]).startsWith(sighting.getId() + "," + sighting.getDate() + ",");
+    }
+
+    @Test
+    public void assertThatExportAsNdjsonWritesOneObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sightingService.export(SightingService.ExportFormat.NDJSON, sighting.getAnimal().getId(),
+            sighting.getDate(), sighting.getDate(), null, out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(1);
+        JsonNode json = objectMapper.readTree(lines[0]);
+        assertThat(json.get("id").asLong()).isEqualTo(sighting.getId());
+        assertThat(json.get("date").asText()).isEqualTo(sighting.getDate().toString());
+        assertThat(json.get("animalName").asText()).isEqualTo(sighting.getAnimal().getName());
+    }
+
+    @Test
+    public void assertThatExportSkipsSightingsOutsideTheFilters() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = sightingService.export(SightingService.ExportFormat.NDJSON, sighting.getAnimal().getId(),
+            sighting.getDate().plusDays(1), null, null, out);
+
+        assertThat(exported).isEqualTo(0);
+        assertThat(out.size()).isEqualTo(0);
+    }
+}
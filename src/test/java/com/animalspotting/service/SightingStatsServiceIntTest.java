@@ -0,0 +1,165 @@
+package com.animalspotting.service;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.domain.Animal;
+import com.animalspotting.domain.Sighting;
+import com.animalspotting.domain.SightingStats.BucketType;
+import com.animalspotting.domain.User;
+import com.animalspotting.domain.util.GeoHash;
+import com.animalspotting.repository.AnimalRepository;
+import com.animalspotting.repository.SightingRepository;
+import com.animalspotting.repository.SightingStatsRepository;
+import com.animalspotting.repository.UserRepository;
+import com.animalspotting.service.dto.SightingStatsDTO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the SightingStatsService.
+ * <p>
+ * The statistics are updated once the sighting transactions have committed, so this test does not run in a
+ * transaction and removes its data afterwards.
+ * </p>
+ *
+ * @see SightingStatsService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class SightingStatsServiceIntTest {
+
+    private static final LocalDate DAY = LocalDate.of(2016, 11, 10);
+
+    @Inject
+    private SightingStatsService sightingStatsService;
+
+    @Inject
+    private SightingService sightingService;
+
+    @Inject
+    private SightingRepository sightingRepository;
+
+    @Inject
+    private SightingStatsRepository sightingStatsRepository;
+
+    @Inject
+    private AnimalRepository animalRepository;
+
+    @Inject
+    private JobLockService jobLockService;
+
+    @Inject
+    private UserRepository userRepository;
+
+    private Animal animal;
+
+    private User user;
+
+    @Before
+    public void initTest() {
+        animal = animalRepository.save(new Animal().name("stats"));
+        user = userRepository.findOneByLogin("user").get();
+    }
+
+    @After
+    public void cleanup() {
+        sightingStatsService.checkpoint();
+        sightingRepository.findAll().stream()
+            .filter(sighting -> sighting.getAnimal().getId().equals(animal.getId()))
+            .forEach(sighting -> sightingRepository.delete(sighting));
+        sightingStatsRepository.delete(
+            sightingStatsRepository.findByAnimalIdAndBucketTypeOrderByBucket(animal.getId(), BucketType.DAY));
+        sightingStatsRepository.delete(
+            sightingStatsRepository.findByAnimalIdAndBucketTypeOrderByBucket(animal.getId(), BucketType.CELL));
+        animalRepository.delete(animal);
+    }
+
+    @Test
+    public void assertThatSavedSightingsAreCountedBeforeAndAfterCheckpoint() {
+        sightingService.save(sighting(DAY, 3));
+        sightingService.save(sighting(DAY, null));
+        sightingService.save(sighting(DAY.plusDays(1), 2));
+
+        assertDays(sightingStatsService.findDays(animal.getId(), null, null));
+        sightingStatsService.checkpoint();
+        assertDays(sightingStatsService.findDays(animal.getId(), null, null));
+
+        List<SightingStatsDTO> cells = sightingStatsService.findCells(animal.getId());
+        assertThat(cells).hasSize(1);
+        assertThat(cells.get(0).getBucket()).isEqualTo(GeoHash.encode(1, 1, 5));
+        assertThat(cells.get(0).getSightings()).isEqualTo(3);
+        assertThat(cells.get(0).getIndividuals()).isEqualTo(6);
+
+        List<SightingStatsDTO> secondDay = sightingStatsService.findDays(animal.getId(), DAY.plusDays(1), null);
+        assertThat(secondDay).hasSize(1);
+        assertThat(secondDay.get(0).getBucket()).isEqualTo(DAY.plusDays(1).toString());
+    }
+
+    @Test
+    public void assertThatUpdatesAndDeletionsAreCounted() {
+        Sighting sighting = sightingService.save(sighting(DAY, 3));
+        sightingStatsService.checkpoint();
+
+        sightingService.save(sighting.date(DAY.plusDays(1)).count(5));
+        List<SightingStatsDTO> days = sightingStatsService.findDays(animal.getId(), null, null);
+        assertThat(days).hasSize(1);
+        assertThat(days.get(0).getBucket()).isEqualTo(DAY.plusDays(1).toString());
+        assertThat(days.get(0).getIndividuals()).isEqualTo(5);
+
+        sightingService.delete(sighting.getId());
+        assertThat(sightingStatsService.findDays(animal.getId(), null, null)).isEmpty();
+        assertThat(sightingStatsService.findCells(animal.getId())).isEmpty();
+    }
+
+    @Test
+    public void assertThatRebuildMatchesIncrementalCounters() throws Exception {
+        sightingService.save(sighting(DAY, 3));
+        sightingService.save(sighting(DAY, null));
+        sightingService.save(sighting(DAY.plusDays(1), 2));
+        sightingStatsService.checkpoint();
+
+        sightingStatsService.rebuild().get();
+
+        assertDays(sightingStatsService.findDays(animal.getId(), null, null));
+        assertThat(sightingStatsService.findCells(animal.getId())).hasSize(1);
+    }
+
+    @Test
+    public void assertThatNothingIsRebuiltWhileAnotherNodeHoldsTheLock() throws Exception {
+        sightingService.save(sighting(DAY, 3));
+        sightingStatsService.checkpoint();
+        Optional<String> lock = jobLockService.tryLock("rebuildSightingStats", Duration.ofMinutes(1));
+        assertThat(lock.isPresent()).isTrue();
+        try {
+            assertThat(sightingStatsService.rebuild().get()).isEqualTo(0L);
+        } finally {
+            jobLockService.unlock("rebuildSightingStats", lock.get());
+        }
+
+        assertThat(sightingStatsService.rebuild().get()).isGreaterThan(0L);
+        assertThat(sightingStatsService.findDays(animal.getId(), null, null))
+            .extracting(SightingStatsDTO::getIndividuals).containsExactly(3L);
+    }
+
+    private void assertDays(List<SightingStatsDTO> days) {
+        assertThat(days).extracting(SightingStatsDTO::getBucket)
+            .containsExactly(DAY.toString(), DAY.plusDays(1).toString());
+        assertThat(days).extracting(SightingStatsDTO::getSightings).containsExactly(2L, 1L);
+        assertThat(days).extracting(SightingStatsDTO::getIndividuals).containsExactly(4L, 2L);
+    }
+
+    private Sighting sighting(LocalDate date, Integer count) {
+        return new Sighting().date(date).latitude(1f).longitude(1f).count(count).user(user).animal(animal);
+    }
+}
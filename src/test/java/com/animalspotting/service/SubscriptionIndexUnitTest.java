@@ -0,0 +1,116 @@
+package com.animalspotting.service;
+
+import com.animalspotting.domain.Animal;
+import com.animalspotting.domain.Subscription;
+import com.animalspotting.domain.User;
+import com.animalspotting.repository.SubscriptionRepository;
+import com.animalspotting.repository.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the SubscriptionIndex.
+ *
+ * @see SubscriptionIndex
+ */
+public class SubscriptionIndexUnitTest {
+
+    private SubscriptionRepository subscriptionRepository;
+
+    private SubscriptionIndex subscriptionIndex;
+
+    @Before
+    public void setup() {
+        subscriptionRepository = mock(SubscriptionRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findOne(1L)).thenReturn(user(1L, "first@localhost"));
+        when(userRepository.findOne(2L)).thenReturn(user(2L, "second@localhost"));
+        subscriptionIndex = new SubscriptionIndex();
+        ReflectionTestUtils.setField(subscriptionIndex, "subscriptionRepository", subscriptionRepository);
+        ReflectionTestUtils.setField(subscriptionIndex, "userRepository", userRepository);
+    }
+
+    @After
+    public void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void assertThatChangesMadeDuringAReloadAreNotLost() {
+        when(subscriptionRepository.findAllRoutes(any(Pageable.class))).thenAnswer(invocation -> {
+            // these changes are committed while the routes are read, and are missing from them
+            subscriptionIndex.put(subscription(11L, 100L, 2L));
+            subscriptionIndex.remove(10L);
+            subscriptionIndex.updateUser(2L, "updated@localhost", "fr");
+            return new SliceImpl<>(Collections.singletonList(
+                new Object[]{10L, 100L, 1L, "first@localhost", "en"}));
+        });
+
+        subscriptionIndex.reload();
+
+        assertThat(subscriptionIndex.isLoaded()).isTrue();
+        assertThat(subscriptionIndex.get(100L).getEmails()).containsExactly("updated@localhost");
+        assertThat(subscriptionIndex.get(100L).getLangKey(0)).isEqualTo("fr");
+    }
+
+    @Test
+    public void assertThatChangesAreOnlyAppliedOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        subscriptionIndex.put(subscription(10L, 100L, 1L));
+        subscriptionIndex.put(subscription(11L, 100L, 2L));
+
+        assertThat(subscriptionIndex.get(100L).size()).isEqualTo(0);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertThat(subscriptionIndex.get(100L).getEmails()).containsExactly("first@localhost", "second@localhost");
+    }
+
+    @Test
+    public void assertThatChangesAreDroppedWhenTheTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        subscriptionIndex.put(subscription(10L, 100L, 1L));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertThat(subscriptionIndex.get(100L).size()).isEqualTo(0);
+    }
+
+    private static Subscription subscription(long id, long animalId, long userId) {
+        Subscription subscription = new Subscription();
+        subscription.setId(id);
+        Animal animal = new Animal();
+        animal.setId(animalId);
+        subscription.setAnimal(animal);
+        User user = new User();
+        user.setId(userId);
+        subscription.setUser(user);
+        return subscription;
+    }
+
+    private static User user(long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setLangKey("en");
+        return user;
+    }
+}
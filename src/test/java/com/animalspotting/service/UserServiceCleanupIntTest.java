@@ -0,0 +1,133 @@
+package com.animalspotting.service;
+
+import com.animalspotting.AnimalSpottingApp;
+import com.animalspotting.config.JHipsterProperties;
+import com.animalspotting.domain.User;
+import com.animalspotting.repository.UserRepository;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the deletion of the not activated users by the UserService.
+ * <p>
+ * Each chunk of users is deleted in its own transaction, so this test does not run in a transaction and deletes
+ * the users it creates afterwards.
+ * </p>
+ *
+ * @see UserService#removeNotActivatedUsers()
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = AnimalSpottingApp.class)
+public class UserServiceCleanupIntTest {
+
+    @Inject
+    private UserService userService;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private JobLockService jobLockService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private JdbcTemplate jdbcTemplate;
+
+    private int chunkSize;
+
+    private List<User> users;
+
+    @Before
+    public void initTest() {
+        chunkSize = jHipsterProperties.getUsers().getCleanup().getChunkSize();
+        jHipsterProperties.getUsers().getCleanup().setChunkSize(2);
+        users = new ArrayList<>();
+    }
+
+    @After
+    public void cleanup() {
+        jHipsterProperties.getUsers().getCleanup().setChunkSize(chunkSize);
+        for (User user : users) {
+            if (userRepository.findOneById(user.getId()).isPresent()) {
+                jdbcTemplate.update("delete from oauth_access_token where user_name = ?", user.getLogin());
+                jdbcTemplate.update("delete from jhi_user_authority where user_id = ?", user.getId());
+                userRepository.delete(user.getId());
+            }
+        }
+    }
+
+    @Test
+    public void assertThatOldNotActivatedUsersAreDeletedByChunks() {
+        for (int i = 0; i < 5; i++) {
+            createUser("cleanup-old-" + i, false, ZonedDateTime.now().minusDays(4));
+        }
+        User recent = createUser("cleanup-recent", false, ZonedDateTime.now().minusDays(1));
+        User activated = createUser("cleanup-activated", true, ZonedDateTime.now().minusDays(4));
+        jdbcTemplate.update("insert into oauth_access_token (token_id, authentication_id, user_name, refresh_token) " +
+            "values ('cleanup-access', 'cleanup-authentication', 'cleanup-old-0', 'cleanup-refresh')");
+        jdbcTemplate.update("insert into oauth_refresh_token (token_id) values ('cleanup-refresh')");
+        long deletedBefore = metricRegistry.meter("users.not-activated.deleted").getCount();
+        long chunksBefore = metricRegistry.timer("users.not-activated.chunks").getCount();
+
+        int deleted = userService.removeNotActivatedUsers();
+
+        assertThat(deleted).isEqualTo(5);
+        assertThat(userRepository.findOneByLogin("cleanup-old-0").isPresent()).isFalse();
+        assertThat(userRepository.findOneByLogin("cleanup-old-4").isPresent()).isFalse();
+        assertThat(userRepository.findOneById(recent.getId()).isPresent()).isTrue();
+        assertThat(userRepository.findOneById(activated.getId()).isPresent()).isTrue();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from jhi_user_authority where user_id = ?",
+            Integer.class, users.get(0).getId())).isEqualTo(0);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from oauth_access_token where user_name = ?",
+            Integer.class, "cleanup-old-0")).isEqualTo(0);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from oauth_refresh_token where token_id = ?",
+            Integer.class, "cleanup-refresh")).isEqualTo(0);
+        assertThat(metricRegistry.meter("users.not-activated.deleted").getCount() - deletedBefore).isEqualTo(5);
+        assertThat(metricRegistry.timer("users.not-activated.chunks").getCount() - chunksBefore).isEqualTo(3);
+    }
+
+    @Test
+    public void assertThatUsersAreNotDeletedWhileAnotherNodeHoldsTheLock() {
+        User user = createUser("cleanup-locked", false, ZonedDateTime.now().minusDays(4));
+        Optional<String> lock = jobLockService.tryLock("removeNotActivatedUsers", Duration.ofMinutes(1));
+        assertThat(lock.isPresent()).isTrue();
+        try {
+            assertThat(userService.removeNotActivatedUsers()).isEqualTo(0);
+            assertThat(userRepository.findOneById(user.getId()).isPresent()).isTrue();
+        } finally {
+            jobLockService.unlock("removeNotActivatedUsers", lock.get());
+        }
+
+        assertThat(userService.removeNotActivatedUsers()).isEqualTo(1);
+        assertThat(userRepository.findOneById(user.getId()).isPresent()).isFalse();
+    }
+
+    private User createUser(String login, boolean activated, ZonedDateTime createdDate) {
+        User user = userService.createUser(login, "password", "Clean", "Up", login + "@localhost", "en");
+        user.setActivated(activated);
+        user.setCreatedDate(createdDate);
+        userRepository.save(user);
+        users.add(user);
+        return user;
+    }
+}
@@ -0,0 +1,90 @@
+package com.animalspotting.web.filter;
+
+import com.animalspotting.config.JHipsterProperties;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the RequestMetricsFilter.
+ *
+ * @see RequestMetricsFilter
+ */
+public class RequestMetricsFilterUnitTest {
+
+    private MetricRegistry metricRegistry;
+
+    private RequestMetricsFilter filter;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        filter = new RequestMetricsFilter(metricRegistry, new JHipsterProperties());
+    }
+
+    @Test
+    public void assertThatRequestsAreRecordedPerEndpoint() throws Exception {
+        for (long id = 1; id <= 2; id++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/animals/" + id);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, (req, res) -> {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/animals/{id}");
+                res.getWriter().write("{\"id\":1}");
+            });
+
+            assertThat(response.getContentAsString()).isEqualTo("{\"id\":1}");
+        }
+
+        assertThat(metricRegistry.timer("requests.GET./api/animals/{id}.200").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.histogram("requests.GET./api/animals/{id}.response-bytes").getSnapshot().getMax())
+            .isEqualTo(8);
+    }
+
+    @Test
+    public void assertThatRequestBytesAreRecorded() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/sightings");
+        request.setContent(new byte[42]);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/sightings");
+            ((HttpServletResponse) res).setStatus(201);
+        });
+
+        assertThat(metricRegistry.timer("requests.POST./api/sightings.201").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.histogram("requests.POST./api/sightings.request-bytes").getSnapshot().getMax())
+            .isEqualTo(42);
+    }
+
+    @Test
+    public void assertThatNonStandardMethodsAreRecordedAsOther() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            filter.doFilter(new MockHttpServletRequest("FOO" + i, "/missing"), new MockHttpServletResponse(),
+                (req, res) -> ((HttpServletResponse) res).setStatus(405));
+        }
+
+        assertThat(metricRegistry.timer("requests.OTHER.unmatched.405").getCount()).isEqualTo(3);
+        assertThat(metricRegistry.getNames().stream().anyMatch(name -> name.contains("FOO"))).isFalse();
+    }
+
+    @Test
+    public void assertThatFailedRequestsAreRecordedAsUnmatchedErrors() throws Exception {
+        try {
+            filter.doFilter(new MockHttpServletRequest("GET", "/missing"), new MockHttpServletResponse(),
+                (req, res) -> {
+                    throw new ServletException("failure");
+                });
+            throw new AssertionError("The exception should have been rethrown");
+        } catch (ServletException e) {
+            assertThat(metricRegistry.timer("requests.GET.unmatched.500").getCount()).isEqualTo(1);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -23,6 +24,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -88,6 +90,38 @@ public class AuditResourceIntTest {
                 .andExpect(jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL)));
     }
 
+    @Test
+    public void getAllAuditsAfter() throws Exception {
+        // Initialize the database
+        auditEventRepository.save(auditEvent);
+
+        // Get the audits following the previous one
+        restAuditMockMvc.perform(get("/management/jhipster/audits?after={after}", auditEvent.getId() - 1))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.[*].principal").value(hasItem(SAMPLE_PRINCIPAL)))
+                .andExpect(header().doesNotExist("X-Total-Count"));
+    }
+
+    @Test
+    public void getAllAuditsAfterLinksToTheNextPage() throws Exception {
+        // Initialize the database
+        auditEventRepository.save(auditEvent);
+        PersistentAuditEvent nextAuditEvent = new PersistentAuditEvent();
+        nextAuditEvent.setAuditEventType(SAMPLE_TYPE);
+        nextAuditEvent.setPrincipal(SAMPLE_PRINCIPAL);
+        nextAuditEvent.setAuditEventDate(SAMPLE_TIMESTAMP);
+        auditEventRepository.save(nextAuditEvent);
+
+        // Get the first audit, the next link must point to the following one
+        restAuditMockMvc.perform(get("/management/jhipster/audits?after={after}&size=1", auditEvent.getId() - 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string(HttpHeaders.LINK,
+                    "</management/jhipster/audits?after=" + auditEvent.getId() + "&size=1>; rel=\"next\"," +
+                    "</management/jhipster/audits?after=0&size=1>; rel=\"first\""));
+    }
+
     @Test
     public void getAudit() throws Exception {
         // Initialize the database
@@ -6,13 +6,19 @@ import com.animalspotting.domain.Sighting;
 import com.animalspotting.domain.User;
 import com.animalspotting.domain.Animal;
 import com.animalspotting.repository.SightingRepository;
+import com.animalspotting.service.SightingService;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -25,6 +31,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.validation.Validator;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.List;
@@ -57,12 +64,21 @@ public class SightingResourceIntTest {
     @Inject
     private SightingRepository sightingRepository;
 
+    @Inject
+    private SightingService sightingService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
+    @Inject
+    private ObjectMapper objectMapper;
+
     @Inject
     private PageableHandlerMethodArgumentResolver pageableArgumentResolver;
 
+    @Inject
+    private Validator validator;
+
     @Inject
     private EntityManager em;
 
@@ -74,7 +90,9 @@ public class SightingResourceIntTest {
     public void setup() {
         MockitoAnnotations.initMocks(this);
         SightingResource sightingResource = new SightingResource();
-        ReflectionTestUtils.setField(sightingResource, "sightingRepository", sightingRepository);
+        ReflectionTestUtils.setField(sightingResource, "sightingService", sightingService);
+        ReflectionTestUtils.setField(sightingResource, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(sightingResource, "validator", validator);
         this.restSightingMockMvc = MockMvcBuilders.standaloneSetup(sightingResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -132,6 +150,72 @@ public class SightingResourceIntTest {
         assertThat(testSighting.getCount()).isEqualTo(DEFAULT_COUNT);
     }
 
+    @Test
+    @Transactional
+    public void createSightingsInBulk() throws Exception {
+        int databaseSizeBeforeCreate = sightingRepository.findAll().size();
+
+        // Create two valid Sightings and an invalid one, as a JSON array then as newline delimited JSON
+        Sighting invalidSighting = new Sighting()
+            .longitude(DEFAULT_LONGITUDE)
+            .user(sighting.getUser())
+            .animal(sighting.getAnimal());
+        String sightings = objectMapper.writeValueAsString(sighting) + "\n" +
+            objectMapper.writeValueAsString(invalidSighting) + "\n" +
+            objectMapper.writeValueAsString(sighting) + "\n";
+
+        restSightingMockMvc.perform(post("/api/sightings/bulk")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content("[" + sightings.trim().replace("\n", ",") + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rejectedCount").value(1))
+                .andExpect(jsonPath("$.rejected.[*].objectName").value(hasItem("sighting[1]")))
+                .andExpect(jsonPath("$.rejected.[*].field").value(hasItem("latitude")));
+
+        restSightingMockMvc.perform(post("/api/sightings/bulk")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .content(sightings))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2));
+
+        // Validate the Sightings in the database
+        List<Sighting> sightingList = sightingRepository.findAll();
+        assertThat(sightingList).hasSize(databaseSizeBeforeCreate + 4);
+        Sighting testSighting = sightingList.get(sightingList.size() - 1);
+        assertThat(testSighting.getLatitude()).isEqualTo(DEFAULT_LATITUDE);
+        assertThat(testSighting.getGeohash()).isNotNull();
+    }
+
+    @Test
+    @Transactional
+    public void createSightingsInBulkWithBadRecords() throws Exception {
+        int databaseSizeBeforeCreate = sightingRepository.findAll().size();
+
+        // A record of the wrong type, one with an animal without id, then a valid one followed by truncated JSON
+        String valid = objectMapper.writeValueAsString(sighting);
+        String sightings = valid.replace("\"count\":" + DEFAULT_COUNT, "\"count\":\"many\"") + "\n" +
+            valid.replaceFirst("\"animal\":\\{[^}]*}", "\"animal\":{}") + "\n" +
+            valid + "\n" +
+            "{\"latitude\":";
+
+        restSightingMockMvc.perform(post("/api/sightings/bulk")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .content(sightings))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejectedCount").value(3))
+                .andExpect(jsonPath("$.rejected.[0].objectName").value("sighting[0]"))
+                .andExpect(jsonPath("$.rejected.[0].field").value("count"))
+                .andExpect(jsonPath("$.rejected.[1].objectName").value("sighting[1]"))
+                .andExpect(jsonPath("$.rejected.[1].field").value("animal.id"))
+                .andExpect(jsonPath("$.rejected.[2].objectName").value("sighting[3]"))
+                .andExpect(jsonPath("$.rejected.[2].message").value("invalidjson"));
+
+        List<Sighting> sightingList = sightingRepository.findAll();
+        assertThat(sightingList).hasSize(databaseSizeBeforeCreate + 1);
+    }
+
     @Test
     @Transactional
     public void checkLongitudeIsRequired() throws Exception {
@@ -182,7 +266,123 @@ public class SightingResourceIntTest {
                 .andExpect(jsonPath("$.[*].date").value(hasItem(DEFAULT_DATE.toString())))
                 .andExpect(jsonPath("$.[*].longitude").value(hasItem(DEFAULT_LONGITUDE.doubleValue())))
                 .andExpect(jsonPath("$.[*].latitude").value(hasItem(DEFAULT_LATITUDE.doubleValue())))
-                .andExpect(jsonPath("$.[*].count").value(hasItem(DEFAULT_COUNT)));
+                .andExpect(jsonPath("$.[*].count").value(hasItem(DEFAULT_COUNT)))
+                .andExpect(jsonPath("$.[*].animalId").value(hasItem(sighting.getAnimal().getId().intValue())))
+                .andExpect(jsonPath("$.[*].animalName").value(hasItem(sighting.getAnimal().getName())))
+                .andExpect(jsonPath("$.[*].userLogin").value(hasItem(sighting.getUser().getLogin())))
+                .andExpect(jsonPath("$.[*].user").doesNotExist());
+
+        // Sort on the joined entities
+        restSightingMockMvc.perform(get("/api/sightings?sort=animal.name,asc&sort=user.login,asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(hasItem(sighting.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getSightingsAfter() throws Exception {
+        // Initialize the database
+        sightingRepository.saveAndFlush(sighting);
+        Sighting other = new Sighting()
+            .latitude(DEFAULT_LATITUDE)
+            .longitude(DEFAULT_LONGITUDE)
+            .user(sighting.getUser())
+            .animal(sighting.getAnimal());
+        sightingRepository.saveAndFlush(other);
+
+        // Get the page holding the first sighting only
+        restSightingMockMvc.perform(get("/api/sightings?after={after}&size=1", sighting.getId() - 1))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.[*].id").value(contains(sighting.getId().intValue())))
+                .andExpect(jsonPath("$.[0].animalName").value(sighting.getAnimal().getName()))
+                .andExpect(jsonPath("$.[0].userLogin").value(sighting.getUser().getLogin()))
+                .andExpect(jsonPath("$.[0].user").doesNotExist())
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(header().string(HttpHeaders.LINK,
+                    containsString("</api/sightings?after=" + sighting.getId() + "&size=1>; rel=\"next\"")));
+
+        // Get the last page, with the count
+        restSightingMockMvc.perform(get("/api/sightings?after={after}&size=1&count=true", sighting.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].id").value(contains(other.getId().intValue())))
+                .andExpect(header().string("X-Total-Count", String.valueOf(sightingRepository.count())))
+                .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    public void exportSightings() throws Exception {
+        restSightingMockMvc.perform(get("/api/sightings/export?format=csv"))
+                .andExpect(request().asyncStarted());
+
+        restSightingMockMvc.perform(get("/api/sightings/export?format=xml"))
+                .andExpect(status().isBadRequest());
+
+        restSightingMockMvc.perform(get("/api/sightings/export?bbox=10,0,0,10"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getSightingsWithin() throws Exception {
+        // Initialize the database
+        sightingRepository.saveAndFlush(sighting);
+
+        // Get the sightings inside a box around the sighting
+        restSightingMockMvc.perform(get("/api/sightings/within?bbox=0.5,0.5,1.5,1.5"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(sighting.getId().intValue())))
+            .andExpect(jsonPath("$.[*].userLogin").value(hasItem(sighting.getUser().getLogin())))
+            .andExpect(header().string("X-Total-Count", "1"));
+
+        // Get the sightings inside a box away from the sighting
+        restSightingMockMvc.perform(get("/api/sightings/within?bbox=1.5,1.5,2.5,2.5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(sighting.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void getSightingsWithinInvalidBox() throws Exception {
+        restSightingMockMvc.perform(get("/api/sightings/within?bbox=1,1,0,0"))
+            .andExpect(status().isBadRequest());
+        restSightingMockMvc.perform(get("/api/sightings/within?bbox=0,0,1"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getSightingsNear() throws Exception {
+        // Initialize the database
+        sightingRepository.saveAndFlush(sighting);
+
+        // Get the sightings 10 km around the sighting, then 100 km away from it
+        restSightingMockMvc.perform(get("/api/sightings/near?lat=1.05&lon=1.05&radiusKm=10"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(sighting.getId().intValue())))
+            .andExpect(jsonPath("$.[*].animalName").value(hasItem(sighting.getAnimal().getName())));
+        restSightingMockMvc.perform(get("/api/sightings/near?lat=1.9&lon=1.9&radiusKm=10"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(sighting.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void getSightingsNearAcrossTheAntimeridian() throws Exception {
+        // Initialize the database
+        sighting.longitude(179.95F);
+        sightingRepository.saveAndFlush(sighting);
+
+        // Get the sightings 20 km around a position on the other side of the antimeridian, then 5 km around it
+        restSightingMockMvc.perform(get("/api/sightings/near?lat=1&lon=-179.95&radiusKm=20"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(sighting.getId().intValue())));
+        restSightingMockMvc.perform(get("/api/sightings/near?lat=1&lon=-179.95&radiusKm=5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(sighting.getId().intValue()))));
     }
 
     @Test
@@ -6,6 +6,7 @@ import com.animalspotting.domain.Subscription;
 import com.animalspotting.domain.User;
 import com.animalspotting.domain.Animal;
 import com.animalspotting.repository.SubscriptionRepository;
+import com.animalspotting.service.SubscriptionIndex;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -46,6 +47,9 @@ public class SubscriptionResourceIntTest {
     @Inject
     private SubscriptionRepository subscriptionRepository;
 
+    @Inject
+    private SubscriptionIndex subscriptionIndex;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -64,6 +68,7 @@ public class SubscriptionResourceIntTest {
         MockitoAnnotations.initMocks(this);
         SubscriptionResource subscriptionResource = new SubscriptionResource();
         ReflectionTestUtils.setField(subscriptionResource, "subscriptionRepository", subscriptionRepository);
+        ReflectionTestUtils.setField(subscriptionResource, "subscriptionIndex", subscriptionIndex);
         this.restSubscriptionMockMvc = MockMvcBuilders.standaloneSetup(subscriptionResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -113,6 +118,9 @@ public class SubscriptionResourceIntTest {
         assertThat(subscriptions).hasSize(databaseSizeBeforeCreate + 1);
         Subscription testSubscription = subscriptions.get(subscriptions.size() - 1);
         assertThat(testSubscription.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
+
+        // The index is only changed once the test transaction commits, which it never does
+        assertThat(subscriptionIndex.get(subscription.getAnimal().getId()).size()).isEqualTo(0);
     }
 
     @Test
@@ -126,7 +134,11 @@ public class SubscriptionResourceIntTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
                 .andExpect(jsonPath("$.[*].id").value(hasItem(subscription.getId().intValue())))
-                .andExpect(jsonPath("$.[*].description").value(hasItem(DEFAULT_DESCRIPTION.toString())));
+                .andExpect(jsonPath("$.[*].description").value(hasItem(DEFAULT_DESCRIPTION.toString())))
+                .andExpect(jsonPath("$.[*].animalId").value(hasItem(subscription.getAnimal().getId().intValue())))
+                .andExpect(jsonPath("$.[*].animalName").value(hasItem(subscription.getAnimal().getName())))
+                .andExpect(jsonPath("$.[*].userLogin").value(hasItem(subscription.getUser().getLogin())))
+                .andExpect(jsonPath("$.[*].user").doesNotExist());
     }
 
     @Test
@@ -190,5 +202,6 @@ public class SubscriptionResourceIntTest {
         // Validate the database is empty
         List<Subscription> subscriptions = subscriptionRepository.findAll();
         assertThat(subscriptions).hasSize(databaseSizeBeforeDelete - 1);
+        assertThat(subscriptionIndex.get(subscription.getAnimal().getId()).size()).isEqualTo(0);
     }
 }